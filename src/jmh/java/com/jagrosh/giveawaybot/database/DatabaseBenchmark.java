@@ -0,0 +1,211 @@
+/*
+ * Copyright 2017 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.giveawaybot.database;
+
+import com.jagrosh.giveawaybot.database.managers.GiveawayManager;
+import com.jagrosh.giveawaybot.entities.Status;
+import net.dv8tion.jda.core.AccountType;
+import net.dv8tion.jda.core.entities.impl.GuildImpl;
+import net.dv8tion.jda.core.entities.impl.JDAImpl;
+import net.dv8tion.jda.core.entities.impl.TextChannelImpl;
+import okhttp3.OkHttpClient;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.IntConsumer;
+
+/**
+ * Fills a fresh embedded H2 database with giveaways and times the queries
+ * the bot and the updater run against it, at several table sizes.
+ * <p>
+ * Guild sizes follow a power law, so a few guilds hold most giveaways, and
+ * end times are spread over the next week, like the live table. Each query
+ * runs for a warmup period and then a measured period, and its throughput
+ * and latency percentiles are printed.
+ * <p>
+ * Usage: {@code DatabaseBenchmark [sizes] [seconds per query]}, for example
+ * {@code DatabaseBenchmark 10000,100000,1000000 5}
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class DatabaseBenchmark {
+
+    private final static int MAX_SAMPLES = 1000000;
+
+    private final JDAImpl jda = new JDAImpl(AccountType.BOT, new OkHttpClient.Builder(), null, false, false, false, false, 2, 900);
+    private final Random random = new Random(42);
+    private final DatabaseConnector database;
+    private final Instant now = Instant.now();
+    private final long measureNanos;
+    private final int size;
+    private final int guilds;
+    private final long[] messageIds;
+    private final long[] channelIds;
+    private final long[] guildIds;
+    private int deleted = 0;
+
+    public static void main(String[] args) throws Exception {
+        String[] sizes = (args.length > 0 ? args[0] : "10000,100000,1000000").split(",");
+        long seconds = args.length > 1 ? Long.parseLong(args[1]) : 5;
+        for (String size : sizes) {
+            Path dir = Files.createTempDirectory("giveawaybench");
+            try {
+                new DatabaseBenchmark(dir, Integer.parseInt(size.trim()), seconds).run();
+            } finally {
+                delete(dir);
+            }
+        }
+    }
+
+    private DatabaseBenchmark(Path dir, int size, long seconds) throws Exception {
+        this.database = new DatabaseConnector(dir.resolve("giveaways").toAbsolutePath().toString(), "sa", "");
+        this.measureNanos = seconds * 1000000000L;
+        this.size = size;
+        this.guilds = Math.max(10, size / 20);
+        this.messageIds = new long[size];
+        this.channelIds = new long[size];
+        this.guildIds = new long[size];
+    }
+
+    private void run() throws SQLException {
+        System.out.println();
+        System.out.println("=== " + size + " giveaways in " + guilds + " guilds ===");
+        long start = System.nanoTime();
+        fill();
+        System.out.printf("filled in %.1fs%n", (System.nanoTime() - start) / 1e9);
+        System.out.printf("%-34s %12s %10s %10s %10s %10s%n", "query", "ops/s", "p50 us", "p99 us", "p99.9 us", "max us");
+
+        GiveawayManager giveaways = database.giveaways;
+        measure("getGiveaway", i -> giveaways.getGiveaway(messageIds[i], guildIds[i]));
+        measure("getGiveaways(guild)", i -> giveaways.getGiveaways(new GuildImpl(jda, guildIds[i])));
+        measure("getGiveaways(channel)", i -> giveaways.getGiveaways(new TextChannelImpl(channelIds[i], new GuildImpl(jda, guildIds[i]))));
+        measure("getGiveaways(page)", i -> giveaways.getGiveaways(guildIds[i], null, 0L, null, 0L, 50));
+        measure("getGiveaways(page, after)", i -> giveaways.getGiveaways(guildIds[i], Status.RUN, 0L, now.plusSeconds(60 * 60 * 24), 0L, 50));
+        measure("getGiveaways(ids)", i -> giveaways.getGiveaways(guildIds[i], new long[]{messageIds[i], messageIds[(i + 1) % size]}));
+        measure("getGiveaways(status)", i -> giveaways.getGiveaways(Status.ENDNOW));
+        measure("getLatestGiveaway", i -> giveaways.getLatestGiveaway(channelIds[i]));
+        measure("getGiveawaysEndingBefore(+6s)", i -> giveaways.getGiveawaysEndingBefore(now.plusSeconds(6)));
+        measure("getGiveawaysEndingBefore(+1h)", i -> giveaways.getGiveawaysEndingBefore(now.plusSeconds(60 * 60)));
+        measure("getGiveaways()", i -> giveaways.getGiveaways());
+        measure("getSettings", i -> database.settings.getSettings(guildIds[i]));
+        measure("endGiveaway", i -> giveaways.endGiveaway(messageIds[i]));
+        measure("deleteGiveaway", i -> {
+            // every giveaway is deleted at most once, so each call deletes a row
+            if (deleted < size)
+                giveaways.deleteGiveaway(messageIds[deleted++]);
+        });
+        database.shutdown();
+    }
+
+    private void fill() throws SQLException {
+        long nextMessage = 300000000000000000L;
+        long[] firstChannel = new long[guilds];
+        int[] channels = new int[guilds];
+        for (int g = 0; g < guilds; g++) {
+            firstChannel[g] = 200000000000000000L + g * 100L;
+            channels[g] = 1 + random.nextInt(5);
+        }
+        for (int i = 0; i < size; i++) {
+            // cubing a uniform value makes low guild numbers much more likely
+            int g = (int) (guilds * Math.pow(random.nextDouble(), 3));
+            guildIds[i] = 100000000000000000L + g;
+            channelIds[i] = firstChannel[g] + random.nextInt(channels[g]);
+            messageIds[i] = nextMessage += 1 + random.nextInt(1000);
+            Instant end = now.plusSeconds(60 + random.nextInt(60 * 60 * 24 * 7));
+            database.giveaways.createGiveaway(guildIds[i], channelIds[i], messageIds[i], end, 1 + random.nextInt(3),
+                    "Prize " + i, random.nextInt(10) == 0 ? 7 : 0, 0L);
+        }
+        // the created giveaways start out initializing; most have been picked up by now
+        try (PreparedStatement statement = database.getConnection().prepareStatement("UPDATE GIVEAWAYS SET STATUS = ?")) {
+            statement.setInt(1, Status.RUN.ordinal());
+            statement.executeUpdate();
+        }
+        // about a tenth of guilds have changed a setting
+        try (PreparedStatement statement = database.getConnection().prepareStatement("INSERT INTO GUILD_SETTINGS (GUILD_ID, WIN_COOLDOWN) VALUES (?, ?)")) {
+            for (int g = 0; g < guilds; g += 10) {
+                statement.setLong(1, 100000000000000000L + g);
+                statement.setInt(2, 24);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+        // shuffle the giveaways so lookups don't walk the table in insert order
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            swap(messageIds, i, j);
+            swap(channelIds, i, j);
+            swap(guildIds, i, j);
+        }
+    }
+
+    private void measure(String name, IntConsumer query) {
+        // warm up for a second, then measure
+        long warmupEnd = System.nanoTime() + 1000000000L;
+        int i = 0;
+        while (System.nanoTime() < warmupEnd && i < size)
+            query.accept(i++);
+        long[] samples = new long[Math.min(MAX_SAMPLES, size)];
+        int count = 0;
+        long start = System.nanoTime();
+        long end = start + measureNanos;
+        while (count < samples.length) {
+            long before = System.nanoTime();
+            if (before >= end)
+                break;
+            query.accept((i + count) % size);
+            samples[count++] = System.nanoTime() - before;
+        }
+        long elapsed = System.nanoTime() - start;
+        Arrays.sort(samples, 0, count);
+        System.out.printf("%-34s %12.1f %10.1f %10.1f %10.1f %10.1f%n", name, count * 1e9 / elapsed,
+                percentile(samples, count, 0.5), percentile(samples, count, 0.99), percentile(samples, count, 0.999),
+                count == 0 ? 0.0 : samples[count - 1] / 1e3);
+    }
+
+    private static double percentile(long[] sorted, int count, double p) {
+        if (count == 0)
+            return 0.0;
+        return sorted[Math.min(count - 1, (int) Math.ceil(p * count) - 1)] / 1e3;
+    }
+
+    private static void swap(long[] array, int i, int j) {
+        long temp = array[i];
+        array[i] = array[j];
+        array[j] = temp;
+    }
+
+    private static void delete(Path dir) throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path d, IOException e) throws IOException {
+                Files.delete(d);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
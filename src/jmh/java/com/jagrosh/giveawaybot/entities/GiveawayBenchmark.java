@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.giveawaybot.entities;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.Color;
+import java.time.Instant;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures rendering a giveaway message, which the updater does for every
+ * giveaway close to ending each second, and drawing winners.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GiveawayBenchmark {
+
+    @Param({"1000", "100000"})
+    public int entrants;
+
+    private Giveaway giveaway;
+    private Giveaway restricted;
+    private Instant now;
+    private Instant closeNow;
+    private long[] ids;
+    private int[] weights;
+
+    @Setup
+    public void setup() {
+        now = Instant.ofEpochSecond(1500000000L);
+        closeNow = now.plusSeconds(60 * 60 * 24 - 3);
+        Instant end = now.plusSeconds(60 * 60 * 24);
+        giveaway = new Giveaway(354315454318034944L, 354312349056417793L, 354312349056417792L, end, 3, "Steam key for a game");
+        restricted = new Giveaway(354315454318034944L, 354312349056417793L, 354312349056417792L, end, 1, "Nitro", 30, 354312349056417794L);
+        Random random = new Random(42);
+        ids = new long[entrants];
+        weights = new int[entrants];
+        for (int i = 0; i < entrants; i++) {
+            ids[i] = 100000000000000000L + random.nextInt(Integer.MAX_VALUE);
+            weights[i] = random.nextInt(10) == 0 ? 2 + random.nextInt(4) : 1;
+        }
+    }
+
+    @Benchmark
+    public Object render() {
+        return giveaway.render(Color.CYAN, now);
+    }
+
+    @Benchmark
+    public Object renderClose() {
+        return giveaway.render(null, closeNow);
+    }
+
+    @Benchmark
+    public Object renderRestricted() {
+        return restricted.render(Color.CYAN, now);
+    }
+
+    @Benchmark
+    public long[] selectWinners() {
+        return Giveaway.selectWinners(ids, null, 3);
+    }
+
+    @Benchmark
+    public long[] selectWeightedWinners() {
+        return Giveaway.selectWinners(ids, weights, 3);
+    }
+}
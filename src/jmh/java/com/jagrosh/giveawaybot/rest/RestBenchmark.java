@@ -0,0 +1,78 @@
+/*
+ * Copyright 2017 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.giveawaybot.rest;
+
+import com.jagrosh.giveawaybot.entities.Giveaway;
+import net.dv8tion.jda.core.entities.Message;
+import org.json.JSONArray;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.Color;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the work done around a REST call without sending it: reading a
+ * page of reaction users, and building the payload of a message edit.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RestBenchmark {
+
+    private RestJDA restJDA;
+    private EditedReactionPaginationAction action;
+    private String page;
+    private Message message;
+
+    @Setup
+    public void setup() {
+        restJDA = new RestJDA("benchmark");
+        action = restJDA.getReactionUsers("354312349056417793", "354315454318034944", "%F0%9F%8E%89");
+        action.cache(false);
+        // a full page of reaction users, as Discord sends it
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < 100; i++) {
+            if (i > 0)
+                sb.append(',');
+            sb.append("{\"id\":\"").append(200000000000000000L + i * 7919L)
+                    .append("\",\"username\":\"entrant").append(i)
+                    .append("\",\"discriminator\":\"").append(String.format("%04d", i))
+                    .append("\",\"avatar\":\"a_0123456789abcdef0123456789abcdef\"")
+                    .append(i % 20 == 0 ? ",\"bot\":true}" : "}");
+        }
+        page = sb.append(']').toString();
+        Instant now = Instant.ofEpochSecond(1500000000L);
+        message = new Giveaway(354315454318034944L, 354312349056417793L, 354312349056417792L, now.plusSeconds(3600), 3, "Steam key")
+                .render(Color.CYAN, now);
+    }
+
+    @Benchmark
+    public List<Long> parseReactionPage() {
+        return action.parse(new JSONArray(page));
+    }
+
+    @Benchmark
+    public Object editMessagePayload() {
+        return restJDA.editMessage("354312349056417793", "354315454318034944", message);
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2017 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.giveawaybot.sim;
+
+import gnu.trove.map.TLongIntMap;
+import gnu.trove.map.hash.TLongIntHashMap;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.time.Clock;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Answers the Discord REST routes that the updater uses, from memory.
+ * <p>
+ * Every giveaway message has a made-up list of entrants, whose size depends
+ * only on the message ID, so pages come back the same however often they're
+ * asked for. Nothing that is sent or edited is kept.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class FakeDiscord {
+
+    private final static long FIRST_ENTRANT = 400000000000000000L;
+
+    private final Clock clock;
+    private final int maxEntrants;
+    private final AtomicLong nextMessage = new AtomicLong(500000000000000000L);
+    private final LongAdder edits = new LongAdder();
+    private final LongAdder endings = new LongAdder();
+    private final LongAdder sends = new LongAdder();
+    private final LongAdder gets = new LongAdder();
+    private final LongAdder reactionPages = new LongAdder();
+    private final LongAdder members = new LongAdder();
+    private final LongAdder unknown = new LongAdder();
+    private final TLongIntMap editsByMinute = new TLongIntHashMap();
+    private volatile BiConsumer<Long, String> sendListener = (channelId, body) -> {};
+
+    /**
+     * @param clock       the clock that edits are counted by
+     * @param maxEntrants the most entrants a giveaway can have
+     */
+    public FakeDiscord(Clock clock, int maxEntrants) {
+        this.clock = clock;
+        this.maxEntrants = maxEntrants;
+    }
+
+    /**
+     * @param listener told the channel ID and body of every message sent, on
+     *                 the thread that sent it
+     */
+    public void setSendListener(BiConsumer<Long, String> listener) {
+        this.sendListener = listener;
+    }
+
+    /**
+     * @param method the HTTP method
+     * @param path   the path of the request, with or without the API prefix
+     * @param query  the query parameters
+     * @param body   the request body, or null
+     * @return the answer
+     */
+    public Reply handle(String method, String path, Map<String, String> query, String body) {
+        String[] parts = route(path);
+        if (parts.length == 4 && parts[0].equals("channels") && parts[2].equals("messages")) {
+            if (method.equals("PATCH")) {
+                edits.increment();
+                if (body != null && body.contains("GIVEAWAY ENDED"))
+                    endings.increment();
+                synchronized (editsByMinute) {
+                    editsByMinute.adjustOrPutValue(clock.millis() / 60000, 1, 1);
+                }
+                return new Reply(200, message(parts[1], parts[3]));
+            }
+            if (method.equals("GET")) {
+                gets.increment();
+                return new Reply(200, message(parts[1], parts[3]));
+            }
+        }
+        if (parts.length == 3 && parts[0].equals("channels") && parts[2].equals("messages") && method.equals("POST")) {
+            sends.increment();
+            sendListener.accept(Long.parseLong(parts[1]), body == null ? "" : body);
+            return new Reply(200, message(parts[1], Long.toString(nextMessage.incrementAndGet())));
+        }
+        if (parts.length == 6 && parts[0].equals("channels") && parts[4].equals("reactions") && method.equals("GET")) {
+            reactionPages.increment();
+            return new Reply(200, reactions(Long.parseLong(parts[3]), query));
+        }
+        if (parts.length == 4 && parts[0].equals("guilds") && parts[2].equals("members") && method.equals("GET")) {
+            members.increment();
+            return new Reply(200, new JSONObject()
+                    .put("user", user(Long.parseLong(parts[3])))
+                    .put("roles", new JSONArray())
+                    .put("joined_at", "2017-01-01T00:00:00.000000+00:00").toString());
+        }
+        unknown.increment();
+        return new Reply(404, new JSONObject().put("code", 0).put("message", "404: Not Found").toString());
+    }
+
+    /**
+     * @param messageId the ID of a giveaway message
+     * @return how many people entered it
+     */
+    public int entrants(long messageId) {
+        long mixed = messageId * 0x9E3779B97F4A7C15L;
+        return (int) ((mixed >>> 33) % (maxEntrants + 1));
+    }
+
+    private String reactions(long messageId, Map<String, String> query) {
+        int total = entrants(messageId);
+        int limit = query.containsKey("limit") ? Integer.parseInt(query.get("limit")) : 25;
+        int start = query.containsKey("after") ? (int) (Long.parseLong(query.get("after")) - FIRST_ENTRANT + 1) : 0;
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = Math.max(0, start); i < total && i < start + limit; i++) {
+            if (i > start)
+                sb.append(',');
+            JSONObject user = user(FIRST_ENTRANT + i);
+            if (i == 0)
+                user.put("bot", true); // the bot's own reaction
+            sb.append(user);
+        }
+        return sb.append(']').toString();
+    }
+
+    private static JSONObject user(long id) {
+        return new JSONObject()
+                .put("id", Long.toString(id))
+                .put("username", "entrant" + (id % 100000))
+                .put("discriminator", String.format("%04d", id % 10000))
+                .put("avatar", JSONObject.NULL);
+    }
+
+    private static String message(String channelId, String messageId) {
+        return new JSONObject()
+                .put("id", messageId)
+                .put("channel_id", channelId)
+                .put("type", 0)
+                .put("content", "")
+                .put("embeds", new JSONArray())
+                .put("attachments", new JSONArray())
+                .put("mentions", new JSONArray())
+                .put("mention_roles", new JSONArray())
+                .put("pinned", false)
+                .put("tts", false)
+                .put("mention_everyone", false)
+                .put("timestamp", "2017-01-01T00:00:00.000000+00:00")
+                .put("author", user(294882584201003009L).put("bot", true))
+                .toString();
+    }
+
+    // the parts of a path after the API prefix and version
+    private static String[] route(String path) {
+        int api = path.indexOf("/api/");
+        if (api >= 0)
+            path = path.substring(api + 5);
+        if (path.startsWith("/"))
+            path = path.substring(1);
+        if (path.matches("v\\d+/.*"))
+            path = path.substring(path.indexOf('/') + 1);
+        return path.split("/");
+    }
+
+    public long getEdits() {
+        return edits.sum();
+    }
+
+    public long getEndings() {
+        return endings.sum();
+    }
+
+    public long getSends() {
+        return sends.sum();
+    }
+
+    public long getMessageGets() {
+        return gets.sum();
+    }
+
+    public long getReactionPages() {
+        return reactionPages.sum();
+    }
+
+    public long getMemberLookups() {
+        return members.sum();
+    }
+
+    public long getUnknown() {
+        return unknown.sum();
+    }
+
+    public long getRequests() {
+        return getEdits() + getSends() + getMessageGets() + getReactionPages() + getMemberLookups() + getUnknown();
+    }
+
+    /**
+     * @return the most edits made in any one minute of the clock
+     */
+    public int getPeakEditsPerMinute() {
+        synchronized (editsByMinute) {
+            int peak = 0;
+            for (int count : editsByMinute.values())
+                peak = Math.max(peak, count);
+            return peak;
+        }
+    }
+
+    public static class Reply {
+
+        public final int code;
+        public final String body;
+
+        public Reply(int code, String body) {
+            this.code = code;
+            this.body = body;
+        }
+    }
+}
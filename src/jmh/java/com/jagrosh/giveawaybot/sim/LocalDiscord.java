@@ -0,0 +1,228 @@
+/*
+ * Copyright 2017 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.giveawaybot.sim;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A local HTTP stand-in for the parts of Discord's REST API that the bot
+ * uses, for load testing RestJDA without touching Discord.
+ * <p>
+ * It answers message edits, sends, gets, reaction user pages and member
+ * lookups like {@link FakeDiscord}. Each route bucket allows a number of
+ * requests per window and answers 429 past that, with the same rate limit
+ * headers and body Discord sends. Latency and random 429s can be added on
+ * top. Point the updater at it with a fifth line in updater.txt, like
+ * {@code http://localhost:8190/api/}.
+ * <p>
+ * Usage: {@code LocalDiscord [--port 8190] [--latency 50] [--jitter 25]
+ * [--limit 5] [--window 5000] [--random429 0.0] [--entrants 10000]}
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class LocalDiscord {
+
+    private final FakeDiscord discord;
+    private final HttpServer server;
+    private final long latency, jitter, window;
+    private final int limit;
+    private final double random429;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final LongAdder limited = new LongAdder();
+    private final LongAdder injected = new LongAdder();
+
+    /**
+     * @param port      the port to listen on
+     * @param latency   the milliseconds to wait before answering
+     * @param jitter    up to this many more milliseconds are added at random
+     * @param limit     the requests each route bucket allows per window
+     * @param window    the length of a rate limit window, in milliseconds
+     * @param random429 the chance of answering any request with a 429 anyway
+     * @param entrants  the most entrants a giveaway can have
+     * @throws IOException if the port can't be bound
+     */
+    public LocalDiscord(int port, long latency, long jitter, int limit, long window, double random429, int entrants) throws IOException {
+        this.discord = new FakeDiscord(Clock.systemUTC(), entrants);
+        this.latency = latency;
+        this.jitter = jitter;
+        this.limit = limit;
+        this.window = window;
+        this.random429 = random429;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/api/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2)
+            options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        int port = Integer.parseInt(options.getOrDefault("port", "8190"));
+        LocalDiscord local = new LocalDiscord(port,
+                Long.parseLong(options.getOrDefault("latency", "50")),
+                Long.parseLong(options.getOrDefault("jitter", "25")),
+                Integer.parseInt(options.getOrDefault("limit", "5")),
+                Long.parseLong(options.getOrDefault("window", "5000")),
+                Double.parseDouble(options.getOrDefault("random429", "0.0")),
+                Integer.parseInt(options.getOrDefault("entrants", "10000")));
+        local.start();
+        System.out.println("Listening on http://localhost:" + port + "/api/");
+        Executors.newSingleThreadScheduledExecutor().scheduleAtFixedRate(local::printStats, 10, 10, TimeUnit.SECONDS);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    public FakeDiscord getDiscord() {
+        return discord;
+    }
+
+    private void printStats() {
+        System.out.printf("%d requests: %d edits, %d sends, %d gets, %d reaction pages, %d member lookups; %d rate limited, %d random 429s%n",
+                discord.getRequests(), discord.getEdits(), discord.getSends(), discord.getMessageGets(),
+                discord.getReactionPages(), discord.getMemberLookups(), limited.sum(), injected.sum());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getRawPath();
+            String body = read(exchange.getRequestBody());
+            long delay = latency + (jitter > 0 ? ThreadLocalRandom.current().nextLong(jitter + 1) : 0);
+            if (delay > 0)
+                Thread.sleep(delay);
+
+            Bucket bucket = buckets.computeIfAbsent(bucket(method, path), k -> new Bucket());
+            long now = System.currentTimeMillis();
+            int remaining;
+            long reset;
+            boolean allowed;
+            synchronized (bucket) {
+                if (now >= bucket.reset) {
+                    bucket.reset = now + window;
+                    bucket.used = 0;
+                }
+                allowed = bucket.used < limit;
+                if (allowed)
+                    bucket.used++;
+                remaining = limit - bucket.used;
+                reset = bucket.reset;
+            }
+            exchange.getResponseHeaders().set("Date", DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC)));
+            exchange.getResponseHeaders().set("X-RateLimit-Limit", Integer.toString(limit));
+            exchange.getResponseHeaders().set("X-RateLimit-Remaining", Integer.toString(remaining));
+            exchange.getResponseHeaders().set("X-RateLimit-Reset", Long.toString((reset + 999) / 1000));
+
+            if (!allowed) {
+                limited.increment();
+                rateLimited(exchange, reset - now);
+                return;
+            }
+            if (random429 > 0 && ThreadLocalRandom.current().nextDouble() < random429) {
+                injected.increment();
+                rateLimited(exchange, 1 + ThreadLocalRandom.current().nextLong(1000));
+                return;
+            }
+            FakeDiscord.Reply reply = discord.handle(method, path, query(exchange.getRequestURI().getRawQuery()), body);
+            send(exchange, reply.code, reply.body);
+        } catch (InterruptedException e) {
+            send(exchange, 500, new JSONObject().put("code", 0).put("message", "500: Internal Server Error").toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void rateLimited(HttpExchange exchange, long retryAfter) throws IOException {
+        exchange.getResponseHeaders().set("Retry-After", Long.toString(retryAfter));
+        send(exchange, 429, new JSONObject()
+                .put("message", "You are being rate limited.")
+                .put("retry_after", retryAfter)
+                .put("global", false).toString());
+    }
+
+    private static void send(HttpExchange exchange, int code, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // Discord buckets by route, with the channel or guild kept and other IDs left out
+    private static String bucket(String method, String path) {
+        String[] parts = path.substring(path.indexOf("/api/") + 5).replaceFirst("^v\\d+/", "").split("/");
+        StringBuilder sb = new StringBuilder(method);
+        for (int i = 0; i < parts.length; i++) {
+            boolean id = !parts[i].isEmpty() && Character.isDigit(parts[i].charAt(0));
+            sb.append('/').append(id && i > 1 ? "{id}" : parts[i]);
+        }
+        return sb.toString();
+    }
+
+    private static Map<String, String> query(String raw) throws IOException {
+        Map<String, String> query = new HashMap<>();
+        if (raw == null)
+            return query;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0)
+                query.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"), URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+        }
+        return query;
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1)
+            out.write(buffer, 0, read);
+        return out.size() == 0 ? null : new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static class Bucket {
+
+        private long reset = 0;
+        private int used = 0;
+    }
+}
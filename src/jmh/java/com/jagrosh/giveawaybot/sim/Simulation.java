@@ -0,0 +1,273 @@
+/*
+ * Copyright 2017 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.giveawaybot.sim;
+
+import com.jagrosh.giveawaybot.Updater;
+import com.jagrosh.giveawaybot.cache.GiveawayRegistry;
+import com.jagrosh.giveawaybot.database.DatabaseConnector;
+import com.jagrosh.giveawaybot.database.managers.ChangeManager;
+import com.jagrosh.giveawaybot.entities.GiveawayEvent;
+import com.jagrosh.giveawaybot.rest.RestJDA;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.TLongLongMap;
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongLongHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Replays days of giveaway traffic against the updater as fast as it can
+ * run, with a virtual clock and Discord answered from memory.
+ * <p>
+ * Giveaways are created steadily with a burst every six hours. Once a day a
+ * storm of giveaways is ended early, and some are deleted along the way.
+ * <p>
+ * The workload and the updater use separate connections, as the bot and the
+ * updater processes do: the workload records its changes, and the updater
+ * follows them into its registry ten times per virtual second and ticks once
+ * per virtual second. Discord requests are still sent and answered on JDA's
+ * threads in real time, so they can trail the clock when the updater outruns
+ * them. A giveaway's lateness runs from when it was due to when the message
+ * announcing its winners reaches Discord, by the virtual clock.
+ * <p>
+ * Usage: {@code Simulation [days] [seed]}
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class Simulation {
+
+    private final static Instant START = Instant.parse("2017-09-01T00:00:00Z");
+    private final static int GUILDS = 2000;
+    private final static double CREATE_RATE = 0.02; // giveaways a second, outside of bursts
+    private final static double DELETE_RATE = 0.002; // deletions a second
+    private final static int BURST_EVERY = 6 * 60 * 60, BURST_SIZE = 300, BURST_LENGTH = 60;
+    private final static int STORM_EVERY = 24 * 60 * 60, STORM_SIZE = 100, STORM_LENGTH = 10;
+    private final static long[] DURATIONS = {10 * 60, 60 * 60, 6 * 60 * 60, 24 * 60 * 60, 3 * 24 * 60 * 60, 7 * 24 * 60 * 60};
+    private final static int[] DURATION_WEIGHTS = {15, 30, 15, 25, 10, 5};
+    private final static int READS_PER_TICK = 10; // the updater reads the changes every 100ms
+    private final static Pattern PRIZE = Pattern.compile("Prize (\\d+)"); // every prize names its giveaway
+
+    private final Random random;
+    private final VirtualClock clock = new VirtualClock(START);
+    private final FakeDiscord discord = new FakeDiscord(clock, 2000);
+    private final DatabaseConnector database; // the bot's side
+    private final Updater updater;
+
+    private final TLongArrayList live = new TLongArrayList(); // may still hold giveaways that are gone
+    private final TLongSet alive = new TLongHashSet();
+    private final TLongLongMap endRequested = new TLongLongHashMap(); // message ID to when it was ended early, in epoch ms
+    private final TLongObjectMap<TLongLongMap> announcing = new TLongObjectHashMap<>(); // channel -> ended giveaway -> when it was due, in epoch ms
+    private final TLongArrayList lateness = new TLongArrayList(); // from due to announced, in ms; guarded by announcing
+    private long nextMessage = 300000000000000000L;
+    private int created = 0, deleted = 0, endedEarly = 0, endedByUpdater = 0;
+
+    public static void main(String[] args) throws Exception {
+        int days = args.length > 0 ? Integer.parseInt(args[0]) : 7;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+        new Simulation(seed).run(days);
+        System.exit(0);
+    }
+
+    private Simulation(long seed) throws Exception {
+        this.random = new Random(seed);
+        this.database = new DatabaseConnector("mem:simulation;DB_CLOSE_DELAY=-1", "sa", "");
+        database.giveaways.addListener(event -> database.changes.record(ChangeManager.BOT, event));
+        DatabaseConnector updaterDatabase = new DatabaseConnector("mem:simulation;DB_CLOSE_DELAY=-1", "sa", "");
+        this.updater = new Updater(updaterDatabase, new RestJDA("simulation", new StubInterceptor(discord)), clock, new GiveawayRegistry());
+        updater.follow();
+        updaterDatabase.giveaways.addListener(this::onEvent);
+        discord.setSendListener(this::onSend);
+    }
+
+    // hears the giveaways the updater deletes as it starts ending them
+    private void onEvent(GiveawayEvent event) {
+        if (event.type != GiveawayEvent.Type.DELETE)
+            return;
+        alive.remove(event.messageId);
+        long requested = endRequested.remove(event.messageId);
+        if (event.giveaway == null)
+            return;
+        long due = event.giveaway.end.toEpochMilli();
+        if (requested != endRequested.getNoEntryValue())
+            due = Math.min(due, requested);
+        synchronized (announcing) {
+            TLongLongMap pending = announcing.get(event.giveaway.channelId);
+            if (pending == null) {
+                pending = new TLongLongHashMap();
+                announcing.put(event.giveaway.channelId, pending);
+            }
+            pending.put(event.messageId, due);
+            endedByUpdater++;
+        }
+    }
+
+    // the winners being announced is what ends a giveaway for its entrants, so lateness is measured here
+    private void onSend(long channelId, String body) {
+        long now = clock.millis();
+        synchronized (announcing) {
+            TLongLongMap pending = announcing.get(channelId);
+            if (pending == null)
+                return;
+            // announcements without winners don't name the prize; they go to the channel's longest waiting giveaway
+            Matcher matcher = PRIZE.matcher(body);
+            long messageId = matcher.find() ? Long.parseLong(matcher.group(1)) : 0L;
+            if (!pending.containsKey(messageId)) {
+                long oldest = Long.MAX_VALUE;
+                for (long id : pending.keys())
+                    if (pending.get(id) < oldest) {
+                        oldest = pending.get(id);
+                        messageId = id;
+                    }
+            }
+            lateness.add(now - pending.remove(messageId));
+            if (pending.isEmpty())
+                announcing.remove(channelId);
+        }
+    }
+
+    private void run(int days) throws InterruptedException {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            pool.resetPeakUsage();
+        long seconds = days * 24L * 60 * 60;
+        long wall = System.nanoTime();
+        for (long t = 0; t < seconds; t++) {
+            workload(t);
+            updater.tick();
+            for (int i = 0; i < READS_PER_TICK; i++) {
+                clock.advance(Duration.ofMillis(1000 / READS_PER_TICK));
+                updater.readChanges();
+            }
+            if (t % (24 * 60 * 60) == 0)
+                System.out.printf("day %d: %d live giveaways, %d requests answered%n", t / (24 * 60 * 60), alive.size(), discord.getRequests());
+        }
+        double elapsed = (System.nanoTime() - wall) / 1e9;
+        awaitQuiet();
+        report(seconds, elapsed);
+    }
+
+    private void workload(long t) {
+        // steady creations, plus a burst every few hours
+        if (random.nextDouble() < CREATE_RATE)
+            create();
+        if (t % BURST_EVERY < BURST_LENGTH)
+            for (int i = 0; i < BURST_SIZE / BURST_LENGTH; i++)
+                create();
+
+        // a storm of early endings once a day, half way through
+        if ((t + STORM_EVERY / 2) % STORM_EVERY < STORM_LENGTH)
+            for (int i = 0; i < STORM_SIZE / STORM_LENGTH; i++) {
+                long messageId = pick();
+                if (messageId != 0 && database.giveaways.endGiveaway(messageId)) {
+                    if (!endRequested.containsKey(messageId))
+                        endRequested.put(messageId, clock.millis());
+                    endedEarly++;
+                }
+            }
+
+        // the occasional deletion
+        if (random.nextDouble() < DELETE_RATE) {
+            long messageId = pick();
+            if (messageId != 0) {
+                database.giveaways.deleteGiveaway(messageId);
+                alive.remove(messageId);
+                endRequested.remove(messageId);
+                deleted++;
+            }
+        }
+    }
+
+    private void create() {
+        long guildId = 100000000000000000L + (long) (GUILDS * Math.pow(random.nextDouble(), 3));
+        long channelId = guildId * 10 + random.nextInt(3);
+        long messageId = nextMessage += 1 + random.nextInt(1 << 20);
+        int roll = random.nextInt(100), d = 0;
+        while (roll >= DURATION_WEIGHTS[d])
+            roll -= DURATION_WEIGHTS[d++];
+        long duration = DURATIONS[d] + random.nextInt(60);
+        Instant end = clock.instant().plusSeconds(duration);
+        if (database.giveaways.createGiveaway(guildId, channelId, messageId, end, 1 + random.nextInt(3), "Prize " + messageId)) {
+            live.add(messageId);
+            alive.add(messageId);
+            created++;
+        }
+    }
+
+    // a random giveaway that hasn't ended yet, or 0 if there aren't any
+    private long pick() {
+        while (!live.isEmpty()) {
+            int i = random.nextInt(live.size());
+            long messageId = live.get(i);
+            if (alive.contains(messageId))
+                return messageId;
+            live.set(i, live.get(live.size() - 1));
+            live.removeAt(live.size() - 1);
+        }
+        return 0;
+    }
+
+    // waits for JDA to finish the requests the updater queued
+    private void awaitQuiet() throws InterruptedException {
+        long last = -1;
+        for (int i = 0; i < 120 && discord.getRequests() != last; i++) {
+            last = discord.getRequests();
+            Thread.sleep(500);
+        }
+    }
+
+    private void report(long seconds, double elapsed) {
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null)
+                peakHeap += pool.getPeakUsage().getUsed();
+        long[] late;
+        int unannounced = 0;
+        synchronized (announcing) {
+            late = lateness.toArray();
+            for (TLongLongMap pending : announcing.valueCollection())
+                unannounced += pending.size();
+        }
+        Arrays.sort(late);
+        System.out.println();
+        System.out.printf("simulated %.1f days in %.1fs (%.0fx)%n", seconds / 86400.0, elapsed, seconds / elapsed);
+        System.out.printf("giveaways: %d created, %d ended by the updater (%d announced, %d never), %d ended early, %d deleted, %d left%n",
+                created, endedByUpdater, late.length, unannounced, endedEarly, deleted, alive.size());
+        System.out.printf("requests:  %d edits (%d endings), %d sends, %d message gets, %d reaction pages, %d member lookups, %d unknown%n",
+                discord.getEdits(), discord.getEndings(), discord.getSends(), discord.getMessageGets(),
+                discord.getReactionPages(), discord.getMemberLookups(), discord.getUnknown());
+        System.out.printf("edits/s:   %.3f mean, %.2f in the busiest minute%n", discord.getEdits() / (double) seconds, discord.getPeakEditsPerMinute() / 60.0);
+        System.out.printf("lateness:  p50 %dms, p90 %dms, p99 %dms, p99.9 %dms, max %dms%n",
+                percentile(late, 0.5), percentile(late, 0.9), percentile(late, 0.99), percentile(late, 0.999),
+                late.length == 0 ? 0 : late[late.length - 1]);
+        System.out.printf("heap:      %.1f MB peak%n", peakHeap / 1048576.0);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0)
+            return 0;
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.giveawaybot.sim;
+
+import okhttp3.*;
+import okio.Buffer;
+
+import java.io.IOException;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Answers every request from a {@link FakeDiscord} instead of sending it,
+ * with rate limit headers that never make JDA wait.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class StubInterceptor implements Interceptor {
+
+    private final static MediaType JSON = MediaType.parse("application/json");
+
+    private final FakeDiscord discord;
+
+    public StubInterceptor(FakeDiscord discord) {
+        this.discord = discord;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        String body = null;
+        if (request.body() != null) {
+            Buffer buffer = new Buffer();
+            request.body().writeTo(buffer);
+            body = buffer.readUtf8();
+        }
+        Map<String, String> query = new HashMap<>();
+        for (String name : request.url().queryParameterNames())
+            query.put(name, request.url().queryParameter(name));
+        FakeDiscord.Reply reply = discord.handle(request.method(), request.url().encodedPath(), query, body);
+        return new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(reply.code)
+                .message(reply.code == 200 ? "OK" : "Not Found")
+                .header("Date", DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC)))
+                .header("X-RateLimit-Limit", "5")
+                .header("X-RateLimit-Remaining", "4")
+                .header("X-RateLimit-Reset", Long.toString(System.currentTimeMillis() / 1000 + 1))
+                .body(ResponseBody.create(JSON, reply.body))
+                .build();
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2017 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.giveawaybot.util;
+
+import net.dv8tion.jda.core.AccountType;
+import net.dv8tion.jda.core.entities.impl.*;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures looking up channels and members by name in a large guild built
+ * from JDA's entity implementations, without connecting to Discord.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FinderUtilBenchmark {
+
+    private final static String[] WORDS = {"general", "giveaways", "memes", "music", "announcements", "gaming", "art", "bots", "help", "offtopic"};
+
+    @Param({"1000", "50000"})
+    public int members;
+
+    private GuildImpl guild;
+
+    @Setup
+    public void setup() {
+        JDAImpl jda = new JDAImpl(AccountType.BOT, new OkHttpClient.Builder(), null, false, false, false, false, 2, 900);
+        guild = new GuildImpl(jda, 1L);
+        Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            TextChannelImpl channel = new TextChannelImpl(1000L + i, guild);
+            channel.setName(WORDS[i % WORDS.length] + (i < WORDS.length ? "" : "-" + i)).setRawPosition(i);
+            guild.getTextChannelsMap().put(channel.getIdLong(), channel);
+        }
+        for (int i = 0; i < members; i++) {
+            UserImpl user = new UserImpl(100000L + i, jda);
+            user.setName(WORDS[random.nextInt(WORDS.length)] + "fan" + i).setDiscriminator(String.format("%04d", random.nextInt(10000)));
+            MemberImpl member = new MemberImpl(guild, user);
+            if (random.nextInt(4) == 0)
+                member.setNickname("nick" + i);
+            guild.getMembersMap().put(user.getIdLong(), member);
+        }
+    }
+
+    @Benchmark
+    public Object findTextChannel() {
+        return FinderUtil.findTextChannel("giveaways", guild);
+    }
+
+    @Benchmark
+    public Object findTextChannelPrefix() {
+        return FinderUtil.findTextChannel("gam", guild);
+    }
+
+    @Benchmark
+    public List<?> findMembers() {
+        return FinderUtil.findMembers("musicfan42", guild);
+    }
+
+    @Benchmark
+    public List<?> findMembersContains() {
+        return FinderUtil.findMembers("fan42", guild);
+    }
+}
@@ -15,7 +15,13 @@
  */
 package com.jagrosh.giveawaybot;
 
+import com.jagrosh.giveawaybot.cache.DashboardCache;
+import com.jagrosh.giveawaybot.database.SlowQueryLog;
 import com.jagrosh.giveawaybot.entities.Giveaway;
+import com.jagrosh.giveawaybot.entities.Status;
+import com.jagrosh.giveawaybot.metrics.Histogram;
+import com.jagrosh.giveawaybot.metrics.Metrics;
+import com.jagrosh.giveawaybot.util.JsonWriter;
 import net.dv8tion.jda.core.entities.Guild;
 import net.dv8tion.jda.core.entities.Member;
 import net.dv8tion.jda.core.entities.TextChannel;
@@ -26,10 +32,18 @@ import spark.Request;
 import spark.Response;
 import spark.Spark;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * @author John Grosh (john.a.grosh@gmail.com)
@@ -37,6 +51,13 @@ import java.util.List;
 public class API {
 
     private static SimpleLog LOG = SimpleLog.getLog("API");
+    private final static int PAGE_DEFAULT = 50;
+    private final static int PAGE_MAX = 100;
+    private final static int QUERIES_DEFAULT = 20;
+    private final static int BATCH_MAX = 500;
+    private final static int STREAM_MAX = 100; // each stream holds one of the server's threads
+    private final static long STREAM_KEEPALIVE = 15000;
+    private final static Map<String, AtomicReferenceArray<Histogram>> REQUEST_TIMES = new ConcurrentHashMap<>(); // by method, then status
 
     /**
      * Starts the REST API
@@ -47,6 +68,28 @@ public class API {
     public static void main(String token, Bot bot) {
         Spark.port(8182);
 
+        // pushes giveaway changes to dashboards: the bot's own, and the updater's,
+        // like giveaways ending on time, when it runs in another process
+        EventStream events = new EventStream(STREAM_MAX);
+        bot.getDatabase().giveaways.addListener(events);
+        bot.followUpdater(events);
+
+        // times every request
+        Spark.before((req, res) -> req.attribute("start", System.nanoTime()));
+        Spark.after((req, res) -> {
+            Long start = req.attribute("start");
+            if (start != null)
+                requestTimes(req.requestMethod(), res.status()).recordSince(start);
+        });
+
+        // Gets the metrics of this process, for scraping
+        Spark.get("/metrics", (req, res) -> {
+            if (!isAuth(req, token))
+                return noAuth(res);
+            res.type("text/plain; version=0.0.4");
+            return Metrics.render();
+        });
+
         // Gets the guilds a user can manager
         Spark.get("/api/users/:id/guilds", (req, res) -> {
             if (!isAuth(req, token))
@@ -58,20 +101,11 @@ public class API {
                 return error(res, "Invalid ID '" + req.params("id") + "'");
             }
             List<Guild> guilds = bot.getManagedGuildsForUser(id);
-            JSONArray array = new JSONArray();
-            guilds.stream().map((guild) -> {
-                JSONObject g = new JSONObject();
-                g.put("id", guild.getId());
-                g.put("name", guild.getName());
-                g.put("icon", guild.getIconId() == null ? JSONObject.NULL : guild.getIconId());
-                return g;
-            }).forEachOrdered((g) -> {
-                array.put(g);
-            });
-            res.status(200);
-            res.header("Content-Type", "application/json");
-            res.body(array.toString());
-            return res.body();
+            JsonWriter json = json(res, 200).beginArray();
+            for (Guild guild : guilds)
+                writeGuild(json, guild);
+            json.endArray().flush();
+            return "";
         });
 
         // Gets the information for a guild's dashboard
@@ -87,88 +121,255 @@ public class API {
             Guild guild = bot.getGuildById(id);
             if (guild == null)
                 return error(res, "Guild Not Found");
-            JSONObject obj = new JSONObject();
-            JSONObject g = new JSONObject();
-            g.put("id", guild.getId());
-            g.put("name", guild.getName());
-            g.put("icon", guild.getIconId() == null ? JSONObject.NULL : guild.getIconId());
-            obj.put("guild", g);
-            JSONArray array = new JSONArray();
-            bot.getDatabase().giveaways.getGiveaways(guild).forEach(giveaway -> {
-                JSONObject give = new JSONObject();
-                give.put("prize", giveaway.prize == null || giveaway.prize.isEmpty() ? "No prize listed" : giveaway.prize);
-                TextChannel tc = guild.getTextChannelById(giveaway.channelId);
-                give.put("channel", tc == null ? JSONObject.NULL : tc.getName());
-                give.put("id", Long.toString(giveaway.messageId));
-                give.put("winners", giveaway.winners);
-                give.put("end", giveaway.end.atZone(ZoneId.of("Z")).format(DateTimeFormatter.RFC_1123_DATE_TIME));
-                array.put(give);
-            });
-            obj.put("giveaways", array);
-            JSONArray array2 = new JSONArray();
-            guild.getTextChannels().stream().filter(tc -> Constants.canSendGiveaway(tc)).forEach(tc -> {
-                JSONObject c = new JSONObject();
-                c.put("name", tc.getName());
-                c.put("id", tc.getId());
-            });
-            obj.put("channels", array2);
+            long now = System.currentTimeMillis();
+            DashboardCache.Snapshot snapshot = bot.getDashboards().get(id, now);
+            if (snapshot == null) {
+                long generation = bot.getDashboards().generation(id);
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                long firstEnd = writeDashboard(new JsonWriter(out), guild, bot.getDatabase().giveaways.getGiveaways(id, null, 0L, null, 0L, PAGE_MAX + 1));
+                snapshot = bot.getDashboards().put(id, generation, out.toByteArray(), now, firstEnd);
+            }
+            res.header("ETag", snapshot.etag);
+            if (snapshot.etag.equals(req.headers("If-None-Match"))) {
+                res.status(304);
+                return "";
+            }
             res.status(200);
-            res.header("Content-Type", "application/json");
-            res.body(obj.toString());
-            return res.body();
+            res.type("application/json");
+            res.raw().getOutputStream().write(snapshot.body);
+            return "";
+        });
+
+        // Streams a guild's giveaway changes as server-sent events
+        Spark.get("/api/guilds/:id/events", (req, res) -> {
+            if (!isAuth(req, token))
+                return noAuth(res);
+            long id;
+            try {
+                id = Long.parseLong(req.params("id"));
+            } catch (NumberFormatException ex) {
+                return error(res, "Invalid ID '" + req.params("id") + "'");
+            }
+            if (bot.getGuildById(id) == null)
+                return error(res, "Guild Not Found");
+            EventStream.Client client = events.subscribe(id);
+            if (client == null)
+                return message(res, 503, "Too many event streams");
+            try {
+                res.status(200);
+                res.type("text/event-stream");
+                res.header("Cache-Control", "no-cache");
+                OutputStream out = res.raw().getOutputStream();
+                out.write("retry: 5000\n\n".getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                while (true) {
+                    String message = client.take(STREAM_KEEPALIVE);
+                    out.write((message == null ? ": keepalive\n\n" : message).getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                }
+            } catch (IOException | InterruptedException ex) {
+                // the client went away
+            } finally {
+                events.unsubscribe(client);
+            }
+            return "";
+        });
+
+        // Lists a guild's giveaways a page at a time, ordered by end time
+        Spark.get("/api/guilds/:id/giveaways", (req, res) -> {
+            if (!isAuth(req, token))
+                return noAuth(res);
+            long id, channelId;
+            int limit;
+            try {
+                id = Long.parseLong(req.params("id"));
+                channelId = req.queryParams("channel") == null ? 0L : Long.parseLong(req.queryParams("channel"));
+                limit = req.queryParams("limit") == null ? PAGE_DEFAULT : Integer.parseInt(req.queryParams("limit"));
+            } catch (NumberFormatException ex) {
+                return error(res, "Invalid number");
+            }
+            if (limit < 1 || limit > PAGE_MAX)
+                return error(res, "Limit must be between 1 and " + PAGE_MAX);
+            Status status = null;
+            if (req.queryParams("status") != null) {
+                try {
+                    status = Status.valueOf(req.queryParams("status").toUpperCase());
+                } catch (IllegalArgumentException ex) {
+                    return error(res, "Invalid status '" + req.queryParams("status") + "'");
+                }
+            }
+            Instant afterEnd = null;
+            long afterMessage = 0L;
+            String after = req.queryParams("after");
+            if (after != null) {
+                String[] parts = after.split("_", 2);
+                try {
+                    afterEnd = Instant.ofEpochMilli(Long.parseLong(parts[0]));
+                    afterMessage = Long.parseLong(parts[1]);
+                } catch (NumberFormatException | ArrayIndexOutOfBoundsException ex) {
+                    return error(res, "Invalid cursor '" + after + "'");
+                }
+            }
+            Guild guild = bot.getGuildById(id);
+            if (guild == null)
+                return error(res, "Guild Not Found");
+            List<Giveaway> page = bot.getDatabase().giveaways.getGiveaways(id, status, channelId, afterEnd, afterMessage, limit + 1);
+            JsonWriter json = json(res, 200).beginObject();
+            writeGiveaways(json, guild, page, limit);
+            json.endObject().flush();
+            return "";
         });
 
         // Gets global stats
         Spark.get("/api/stats", (req, res) -> {
             if (!isAuth(req, token))
                 return noAuth(res);
-            JSONObject obj = new JSONObject();
-            obj.put("total", bot.getDatabase().giveaways.getGiveaways().size());
-            res.status(200);
-            res.header("Content-Type", "application/json");
-            res.body(obj.toString());
-            return res.body();
+            json(res, 200).beginObject()
+                    .name("total").value(bot.getDatabase().giveaways.getGiveaways().size())
+                    .endObject().flush();
+            return "";
+        });
+
+        // Gets the database statements that have taken the most time
+        Spark.get("/api/stats/queries", (req, res) -> {
+            if (!isAuth(req, token))
+                return noAuth(res);
+            int limit;
+            try {
+                limit = req.queryParams("limit") == null ? QUERIES_DEFAULT : Integer.parseInt(req.queryParams("limit"));
+            } catch (NumberFormatException ex) {
+                return error(res, "Invalid number");
+            }
+            if (limit < 1 || limit > PAGE_MAX)
+                return error(res, "Limit must be between 1 and " + PAGE_MAX);
+            SlowQueryLog log = bot.getDatabase().getSlowQueries();
+            JsonWriter json = json(res, 200).beginObject()
+                    .name("threshold_ms").value(log.getThreshold())
+                    .name("statements").beginArray();
+            for (SlowQueryLog.Entry entry : log.getTop(limit))
+                json.beginObject()
+                        .name("statement").value(entry.getStatement())
+                        .name("count").value(entry.getCount())
+                        .name("total_us").value(entry.getTotal() / 1000)
+                        .name("max_us").value(entry.getMax() / 1000)
+                        .name("plan").value(entry.getPlan())
+                        .endObject();
+            json.endArray().endObject().flush();
+            return "";
+        });
+
+        // Starts many giveaways in one guild
+        Spark.post("/api/giveaways/batch", (req, res) -> {
+            if (!isAuth(req, token))
+                return noAuth(res);
+            Instant now = Instant.now();
+            JSONObject obj = new JSONObject(req.body());
+            Member m = getManager(bot, obj, res);
+            if (m == null)
+                return "";
+            Guild g = m.getGuild();
+            JSONArray array = obj.getJSONArray("giveaways");
+            if (array.length() == 0 || array.length() > BATCH_MAX)
+                return error(res, "Batches must have between 1 and " + BATCH_MAX + " giveaways");
+            List<Giveaway> giveaways = new ArrayList<>(array.length());
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject give = array.getJSONObject(i);
+                TextChannel tc = g.getTextChannelById(Long.parseLong(give.getString("channelid")));
+                if (tc == null)
+                    return error(res, "Giveaway " + i + ": Channel does not exist");
+                if (!Constants.canSendGiveaway(tc))
+                    return error(res, "Giveaway " + i + ": Could not start giveaway");
+                String prize = give.getString("prize");
+                if (prize.length() > Constants.PRIZE_MAX)
+                    prize = prize.substring(0, Constants.PRIZE_MAX);
+                int minAccountAge = give.optInt("minage", 0);
+                long requiredRole = give.has("requiredrole") ? Long.parseLong(give.getString("requiredrole")) : 0L;
+                if (minAccountAge < 0)
+                    return error(res, "Giveaway " + i + ": Minimum account age cannot be negative");
+                if (requiredRole != 0L && g.getRoleById(requiredRole) == null)
+                    return error(res, "Giveaway " + i + ": Role does not exist");
+                int seconds = give.getInt("seconds");
+                if (!Constants.validTime(seconds))
+                    return error(res, "Giveaway " + i + ": Time must be between " + Constants.MIN_TIME + " and " + Constants.MAX_TIME + " seconds");
+                int winners = give.getInt("winners");
+                if (!Constants.validWinners(winners))
+                    return error(res, "Giveaway " + i + ": Winners must be between " + Constants.MIN_WINNERS + " and " + Constants.MAX_WINNERS);
+                giveaways.add(new Giveaway(0L, tc.getIdLong(), g.getIdLong(), now.plusSeconds(seconds),
+                        winners, prize, minAccountAge, requiredRole));
+            }
+            bot.startGiveaways(g, now, giveaways);
+            json(res, 202).beginObject().name("queued").value(giveaways.size()).endObject().flush();
+            return "";
+        });
+
+        // Ends many giveaways in one guild
+        Spark.post("/api/giveaways/batch/end", (req, res) -> {
+            if (!isAuth(req, token))
+                return noAuth(res);
+            JSONObject obj = new JSONObject(req.body());
+            Member m = getManager(bot, obj, res);
+            if (m == null)
+                return "";
+            long[] ids = getIds(obj);
+            if (ids.length == 0 || ids.length > BATCH_MAX)
+                return error(res, "Batches must have between 1 and " + BATCH_MAX + " giveaways");
+            int ended = bot.endGiveaways(m.getGuild().getIdLong(), ids);
+            if (ended < 0)
+                return error(res, "Could not end giveaways");
+            json(res, 200).beginObject().name("ended").value(ended).endObject().flush();
+            return "";
+        });
+
+        // Deletes many giveaways in one guild
+        Spark.delete("/api/giveaways/batch", (req, res) -> {
+            if (!isAuth(req, token))
+                return noAuth(res);
+            JSONObject obj = new JSONObject(req.body());
+            Member m = getManager(bot, obj, res);
+            if (m == null)
+                return "";
+            long[] ids = getIds(obj);
+            if (ids.length == 0 || ids.length > BATCH_MAX)
+                return error(res, "Batches must have between 1 and " + BATCH_MAX + " giveaways");
+            int deleted = bot.deleteGiveaways(m.getGuild().getIdLong(), ids);
+            if (deleted < 0)
+                return error(res, "Could not delete giveaways");
+            json(res, 200).beginObject().name("deleted").value(deleted).endObject().flush();
+            return "";
         });
 
         // Starts a giveaway
         Spark.post("/api/giveaways", (req, res) -> {
             if (!isAuth(req, token))
                 return noAuth(res);
-            res.header("Content-Type", "application/json");
             Instant now = Instant.now();
             JSONObject obj = new JSONObject(req.body());
             long userId = Long.parseLong(obj.getString("userid"));
             long channelId = Long.parseLong(obj.getString("channelid"));
             TextChannel tc = bot.getTextChannelById(channelId);
-            if (tc == null) {
-                res.status(400);
-                res.body(new JSONObject().put("message", "Channel does not exist").toString());
-                return res.body();
-            }
+            if (tc == null)
+                return error(res, "Channel does not exist");
             Member m = tc.getGuild().getMemberById(userId);
-            if (m == null) {
-                res.status(400);
-                res.body(new JSONObject().put("message", "Member does not exist").toString());
-                return res.body();
-            }
-            if (!Constants.canGiveaway(m)) {
-                res.status(400);
-                res.body(new JSONObject().put("message", "Member cannot start giveaway").toString());
-                return res.body();
-            }
+            if (m == null)
+                return error(res, "Member does not exist");
+            if (!Constants.canGiveaway(m))
+                return error(res, "Member cannot start giveaway");
             int seconds = obj.getInt("seconds");
             int winners = obj.getInt("winners");
             String prize = obj.getString("prize");
             if (prize.length() > Constants.PRIZE_MAX)
                 prize = prize.substring(0, Constants.PRIZE_MAX);
-            if (bot.startGiveaway(tc, now, seconds, winners, prize)) {
-                res.status(200);
-                res.body(new JSONObject().put("channel", tc.getName()).toString());
-                return res.body();
+            int minAccountAge = obj.optInt("minage", 0);
+            long requiredRole = obj.has("requiredrole") ? Long.parseLong(obj.getString("requiredrole")) : 0L;
+            if (minAccountAge < 0)
+                return error(res, "Minimum account age cannot be negative");
+            if (requiredRole != 0L && tc.getGuild().getRoleById(requiredRole) == null)
+                return error(res, "Role does not exist");
+            if (bot.startGiveaway(tc, now, seconds, winners, prize, minAccountAge, requiredRole)) {
+                json(res, 200).beginObject().name("channel").value(tc.getName()).endObject().flush();
+                return "";
             } else {
-                res.status(400);
-                res.body(new JSONObject().put("message", "Could not start giveaway").toString());
-                return res.body();
+                return error(res, "Could not start giveaway");
             }
         });
 
@@ -180,38 +381,21 @@ public class API {
             long userId = Long.parseLong(obj.getString("userid"));
             long guildId = Long.parseLong(obj.getString("guildid"));
             Guild g = bot.getGuildById(guildId);
-            if (g == null) {
-                res.status(400);
-                res.body(new JSONObject().put("message", "Guild does not exist").toString());
-                return res.body();
-            }
+            if (g == null)
+                return error(res, "Guild does not exist");
             Member m = g.getMemberById(userId);
-            if (m == null) {
-                res.status(400);
-                res.body(new JSONObject().put("message", "Member does not exist").toString());
-                return res.body();
-            }
-            if (!Constants.canGiveaway(m)) {
-                res.status(400);
-                res.body(new JSONObject().put("message", "Member cannot start giveaway").toString());
-                return res.body();
-            }
+            if (m == null)
+                return error(res, "Member does not exist");
+            if (!Constants.canGiveaway(m))
+                return error(res, "Member cannot start giveaway");
             long messageId = Long.parseLong(req.params("id"));
             Giveaway gi = bot.getDatabase().giveaways.getGiveaway(messageId, guildId);
-            if (gi == null) {
-                res.status(400);
-                res.body(new JSONObject().put("message", "Giveaway does not exist").toString());
-                return res.body();
-            }
-            if (bot.getDatabase().giveaways.endGiveaway(messageId)) {
-                res.status(200);
-                res.body(new JSONObject().put("message", "Ended giveaway").toString());
-                return res.body();
-            } else {
-                res.status(400);
-                res.body(new JSONObject().put("message", "Could not end giveaway").toString());
-                return res.body();
-            }
+            if (gi == null)
+                return error(res, "Giveaway does not exist");
+            if (bot.endGiveaway(guildId, messageId))
+                return message(res, 200, "Ended giveaway");
+            else
+                return error(res, "Could not end giveaway");
         });
 
         // Deletes a giveaway
@@ -222,56 +406,148 @@ public class API {
             long userId = Long.parseLong(obj.getString("userid"));
             long guildId = Long.parseLong(obj.getString("guildid"));
             Guild g = bot.getGuildById(guildId);
-            if (g == null) {
-                res.status(400);
-                res.body(new JSONObject().put("message", "Guild does not exist").toString());
-                return res.body();
-            }
+            if (g == null)
+                return error(res, "Guild does not exist");
             Member m = g.getMemberById(userId);
-            if (m == null) {
-                res.status(400);
-                res.body(new JSONObject().put("message", "Member does not exist").toString());
-                return res.body();
-            }
-            if (!Constants.canGiveaway(m)) {
-                res.status(400);
-                res.body(new JSONObject().put("message", "Member cannot start giveaway").toString());
-                return res.body();
-            }
+            if (m == null)
+                return error(res, "Member does not exist");
+            if (!Constants.canGiveaway(m))
+                return error(res, "Member cannot start giveaway");
             long messageId = Long.parseLong(req.params("id"));
             Giveaway gi = bot.getDatabase().giveaways.getGiveaway(messageId, guildId);
-            if (gi == null) {
-                res.status(400);
-                res.body(new JSONObject().put("message", "Giveaway does not exist").toString());
-                return res.body();
-            }
-            if (bot.deleteGiveaway(gi.channelId, messageId)) {
-                res.status(200);
-                res.body(new JSONObject().put("message", "Deleted giveaway").toString());
-                return res.body();
-            } else {
-                res.status(400);
-                res.body(new JSONObject().put("message", "Could not delete giveaway").toString());
-                return res.body();
-            }
+            if (gi == null)
+                return error(res, "Giveaway does not exist");
+            if (bot.deleteGiveaway(gi))
+                return message(res, 200, "Deleted giveaway");
+            else
+                return error(res, "Could not delete giveaway");
         });
 
         LOG.info("Spark API started");
     }
 
+    // finds the series for a kind of request once, instead of on every request
+    private static Histogram requestTimes(String method, int status) {
+        AtomicReferenceArray<Histogram> byStatus = REQUEST_TIMES.computeIfAbsent(method, m -> new AtomicReferenceArray<>(600));
+        boolean known = status >= 0 && status < byStatus.length();
+        Histogram histogram = known ? byStatus.get(status) : null;
+        if (histogram == null) {
+            histogram = Metrics.histogram("giveawaybot_api_seconds", "Time taken by API requests", "method=\"" + method + "\",status=\"" + status + "\"");
+            if (known)
+                byStatus.set(status, histogram);
+        }
+        return histogram;
+    }
+
     private static boolean isAuth(Request req, String token) {
         return req.headers("Authorization") != null && req.headers("Authorization").equals(token);
     }
 
-    private static String noAuth(Response res) {
-        res.status(401);
-        res.body(new JSONObject().put("message", "Invalid giveaway auth token").toString());
-        return res.body();
+    // finds the member making a request, or writes an error and returns null
+    private static Member getManager(Bot bot, JSONObject obj, Response res) throws IOException {
+        Guild g = bot.getGuildById(Long.parseLong(obj.getString("guildid")));
+        if (g == null) {
+            error(res, "Guild does not exist");
+            return null;
+        }
+        Member m = g.getMemberById(Long.parseLong(obj.getString("userid")));
+        if (m == null) {
+            error(res, "Member does not exist");
+            return null;
+        }
+        if (!Constants.canGiveaway(m)) {
+            error(res, "Member cannot start giveaway");
+            return null;
+        }
+        return m;
+    }
+
+    private static long[] getIds(JSONObject obj) {
+        JSONArray array = obj.getJSONArray("ids");
+        long[] ids = new long[array.length()];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = Long.parseLong(array.getString(i));
+        return ids;
+    }
+
+    private static String noAuth(Response res) throws IOException {
+        return message(res, 401, "Invalid giveaway auth token");
+    }
+
+    private static String error(Response res, String message) throws IOException {
+        return message(res, 400, message);
+    }
+
+    private static String message(Response res, int status, String message) throws IOException {
+        json(res, status).beginObject().name("message").value(message).endObject().flush();
+        return "";
     }
 
-    private static String error(Response res, String message) {
-        res.status(400);
-        res.body(new JSONObject().put("message", message).toString());
-        return res.body();
+    // starts a JSON response that is written straight to the client
+    private static JsonWriter json(Response res, int status) throws IOException {
+        res.status(status);
+        res.type("application/json");
+        return new JsonWriter(res.raw().getOutputStream());
+    }
+
+    private static void writeGuild(JsonWriter json, Guild guild) throws IOException {
+        json.beginObject()
+                .name("id").value(guild.getId())
+                .name("name").value(guild.getName())
+                .name("icon").value(guild.getIconId())
+                .endObject();
+    }
+
+    /**
+     * Writes a guild's dashboard
+     *
+     * @param giveaways the first page of the guild's giveaways, ordered by end time, with one extra if there are more
+     * @return when the first of the giveaways ends, in epoch milliseconds
+     */
+    private static long writeDashboard(JsonWriter json, Guild guild, List<Giveaway> giveaways) throws IOException {
+        json.beginObject().name("guild");
+        writeGuild(json, guild);
+        writeGiveaways(json, guild, giveaways, PAGE_MAX);
+        json.name("channels").beginArray();
+        for (TextChannel tc : guild.getTextChannels()) {
+            if (!Constants.canSendGiveaway(tc))
+                continue;
+            json.beginObject()
+                    .name("name").value(tc.getName())
+                    .name("id").value(tc.getId())
+                    .endObject();
+        }
+        json.endArray().endObject().flush();
+        return giveaways.isEmpty() ? Long.MAX_VALUE : giveaways.get(0).end.toEpochMilli();
+    }
+
+    /**
+     * Writes a page of giveaways, and the cursor for the next page if there is one
+     *
+     * @param giveaways the giveaways, with one more than the limit if there is a next page
+     * @param limit     the most giveaways to write
+     */
+    private static void writeGiveaways(JsonWriter json, Guild guild, List<Giveaway> giveaways, int limit) throws IOException {
+        json.name("giveaways").beginArray();
+        Giveaway last = null;
+        int count = 0;
+        for (Giveaway giveaway : giveaways) {
+            if (count++ == limit)
+                break;
+            TextChannel tc = guild.getTextChannelById(giveaway.channelId);
+            json.beginObject()
+                    .name("prize").value(giveaway.prize == null || giveaway.prize.isEmpty() ? "No prize listed" : giveaway.prize)
+                    .name("channel").value(tc == null ? null : tc.getName())
+                    .name("id").value(Long.toString(giveaway.messageId))
+                    .name("winners").value(giveaway.winners)
+                    .name("end").value(giveaway.end.atZone(ZoneId.of("Z")).format(DateTimeFormatter.RFC_1123_DATE_TIME))
+                    .endObject();
+            last = giveaway;
+        }
+        json.endArray().name("next");
+        if (giveaways.size() > limit)
+            json.value(last.end.toEpochMilli() + "_" + last.messageId);
+        else
+            json.nullValue();
     }
 }
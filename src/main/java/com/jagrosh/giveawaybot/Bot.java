@@ -15,56 +15,113 @@
  */
 package com.jagrosh.giveawaybot;
 
+import com.jagrosh.giveawaybot.cache.ChannelIndex;
+import com.jagrosh.giveawaybot.cache.DashboardCache;
+import com.jagrosh.giveawaybot.cache.ManagerIndex;
 import com.jagrosh.giveawaybot.commands.*;
 import com.jagrosh.giveawaybot.database.DatabaseConnector;
+import com.jagrosh.giveawaybot.database.managers.ChangeManager;
+import com.jagrosh.giveawaybot.database.managers.ChangeManager.Change;
+import com.jagrosh.giveawaybot.database.managers.GuildSettingsManager.GuildSettings;
 import com.jagrosh.giveawaybot.entities.Giveaway;
+import com.jagrosh.giveawaybot.entities.GiveawayEvent;
+import com.jagrosh.giveawaybot.metrics.CommandProfiler;
+import com.jagrosh.giveawaybot.util.BoundedSender;
 import com.jagrosh.giveawaybot.util.FormatUtil;
+import com.jagrosh.giveawaybot.util.MessageWaiter;
+import com.jagrosh.giveawaybot.util.TimerWheel;
 import com.jagrosh.jdautilities.commandclient.CommandClient;
 import com.jagrosh.jdautilities.commandclient.CommandClientBuilder;
 import com.jagrosh.jdautilities.commandclient.examples.PingCommand;
-import com.jagrosh.jdautilities.waiter.EventWaiter;
+import gnu.trove.map.TLongIntMap;
+import gnu.trove.map.hash.TLongIntHashMap;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
 import net.dv8tion.jda.core.AccountType;
 import net.dv8tion.jda.core.JDA;
 import net.dv8tion.jda.core.JDABuilder;
 import net.dv8tion.jda.core.OnlineStatus;
 import net.dv8tion.jda.core.entities.*;
+import net.dv8tion.jda.core.events.ReadyEvent;
+import net.dv8tion.jda.core.events.channel.text.TextChannelDeleteEvent;
+import net.dv8tion.jda.core.events.guild.member.GuildMemberLeaveEvent;
 import net.dv8tion.jda.core.events.guild.member.GuildMemberRoleAddEvent;
 import net.dv8tion.jda.core.events.guild.member.GuildMemberRoleRemoveEvent;
+import net.dv8tion.jda.core.events.role.RoleDeleteEvent;
 import net.dv8tion.jda.core.events.role.update.RoleUpdateColorEvent;
+import net.dv8tion.jda.core.hooks.EventListener;
 import net.dv8tion.jda.core.hooks.ListenerAdapter;
 import net.dv8tion.jda.core.utils.SimpleLog;
 
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.time.Instant;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
  * @author John Grosh (john.a.grosh@gmail.com)
  */
 public class Bot extends ListenerAdapter {
 
-    private final List<JDA> shards; // list of all logins the bot has
+    private final JDA[] shards; // all logins the bot has, indexed by shard id
+    private final ChannelIndex channels; // channel to guild lookups
+    private final ManagerIndex managers; // user to the guilds they can manage giveaways in
+    private final DashboardCache dashboards; // rendered dashboards for the API
+    private final BoundedSender sender; // paces the messages of batch operations
     private final ScheduledExecutorService threadpool; // threadpool to use for timings
     private final DatabaseConnector database; // database
+    private final TLongSet bonusGuilds; // guilds that have at least one bonus role
+    private final Map<Long, Long> latestGiveaways; // channel -> newest giveaway message, -1 when there are none; least recently used first
+    private boolean separateUpdater = false; // whether the updater runs in another process and records its changes
+    private long updaterCursor = 0; // the last of the updater's changes read
+    private long updaterReads = 0;
     private final SimpleLog LOG = SimpleLog.getLog("Bot");
+    private final static long IDENTIFY_DELAY = 5500; // Discord allows one identify per bucket every 5 seconds
+    private final static long READY_TIMEOUT = 10; // minutes to wait for every shard after the last one logs in
+    private final static int BATCH_FLUSH = 25; // started giveaways to collect before writing them
+    private final static int MAX_LATEST = 10000; // channels to remember the newest giveaway of
+    private final static long FOLLOW_EVERY = 500; // milliseconds between reads of the updater's changes
+    private final static int FOLLOW_MAX = 1000; // changes to read at once
+    private final static int TRIM_EVERY = 600; // reads between deletions of the updater's changes that were read
 
-    private Bot(DatabaseConnector database) {
+    private Bot(DatabaseConnector database, int shardCount) {
         this.database = database;
-        shards = new LinkedList<>();
+        shards = new JDA[shardCount];
+        channels = new ChannelIndex();
+        managers = new ManagerIndex();
+        dashboards = new DashboardCache();
+        sender = new BoundedSender(5);
         threadpool = Executors.newScheduledThreadPool(20);
+        bonusGuilds = new TLongHashSet(database.settings.getBonusGuilds());
+        latestGiveaways = new LinkedHashMap<Long, Long>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                return size() > MAX_LATEST;
+            }
+        };
     }
 
     /**
      * Starts the application in Bot mode
      *
      * @param shards
+     * @param concurrency   how many shards may identify in each 5 second window
+     * @param recordChanges whether to record giveaway changes for an updater in another process
+     * @return the bot, once every shard is ready
      * @throws java.lang.Exception
      */
-    public static void main(int shards) throws Exception {
+    public static Bot main(int shards, int concurrency, boolean recordChanges) throws Exception {
         // load tokens from a file
         // 0 - bot token
         // 1 - dbots key
@@ -75,10 +132,14 @@ public class Bot extends ListenerAdapter {
         List<String> tokens = Files.readAllLines(Paths.get("config.txt"));
 
         // instantiate a bot with a database connector
-        Bot bot = new Bot(new DatabaseConnector(tokens.get(2), tokens.get(3), tokens.get(4)));
+        Bot bot = new Bot(new DatabaseConnector(tokens.get(2), tokens.get(3), tokens.get(4)), shards);
+        if (recordChanges) {
+            bot.database.giveaways.addListener(event -> bot.database.changes.record(ChangeManager.BOT, event));
+            bot.separateUpdater = true;
+        }
 
-        // instantiate an event waiter
-        EventWaiter waiter = new EventWaiter();
+        // instantiate a waiter for interactive setups, timing out on a one-second wheel
+        MessageWaiter waiter = new MessageWaiter(new TimerWheel(512, 1, TimeUnit.SECONDS));
 
         // build the client to deal with commands
         CommandClient client = new CommandClientBuilder()
@@ -89,6 +150,7 @@ public class Bot extends ListenerAdapter {
                 .setEmojis(Constants.TADA, "\uD83D\uDCA5", "\uD83D\uDCA5")
                 //.setServerInvite("https://discordapp.com/invite/0p9LSGoRLu6Pet0k")
                 .setHelpFunction(event -> FormatUtil.formatHelp(event))
+                .setListener(new CommandProfiler())
                 .setDiscordBotsKey(tokens.get(1))
                 .addCommands(
                         new AboutCommand(bot),
@@ -98,45 +160,104 @@ public class Bot extends ListenerAdapter {
                         new CreateCommand(bot, waiter),
                         new StartCommand(bot),
                         new EndCommand(bot),
-                        new RerollCommand(),
+                        new RerollCommand(bot),
+                        new BonusCommand(bot),
+                        new CooldownCommand(bot),
 
                         new EvalCommand(bot),
+                        new SlowQueriesCommand(bot),
                         new ShutdownCommand(bot)
                 ).build();
 
-        // start up each shard
+        // start up each shard without waiting for the previous ones to be ready,
+        // pacing identifies so that only 'concurrency' shards log in every 5 seconds
+        long start = System.currentTimeMillis();
+        long[] readyTimes = new long[shards];
+        AtomicBoolean apiStarted = new AtomicBoolean(false);
+        CountDownLatch allReady = new CountDownLatch(shards);
         for (int i = 0; i < shards; i++) {
+            if (i > 0 && i % concurrency == 0)
+                Thread.sleep(IDENTIFY_DELAY);
+            int shardId = i;
+            long shardStart = System.currentTimeMillis();
             JDABuilder builder = new JDABuilder(AccountType.BOT)
                     .setToken(tokens.get(0))
                     .setAudioEnabled(false)
                     .setGame(Game.of("loading..."))
                     .setStatus(OnlineStatus.DO_NOT_DISTURB)
+                    .addEventListener(Constants.PERMISSIONS) // first, so nothing sees stale permissions
                     .addEventListener(client)
                     .addEventListener(waiter)
-                    .addEventListener(bot);
+                    .addEventListener(bot)
+                    .addEventListener(bot.channels)
+                    .addEventListener(bot.managers)
+                    .addEventListener(Constants.NAMES)
+                    .addEventListener((EventListener) event -> {
+                        if (!(event instanceof ReadyEvent))
+                            return;
+                        readyTimes[shardId] = System.currentTimeMillis() - shardStart;
+                        bot.addShard(event.getJDA());
+                        bot.LOG.info("Shard " + shardId + " ready in " + readyTimes[shardId] + "ms");
+                        // starts the API as soon as there is a shard to serve it
+                        if (apiStarted.compareAndSet(false, true))
+                            bot.threadpool.execute(() -> API.main(tokens.get(5), bot));
+                        allReady.countDown();
+                    });
             if (shards > 1)
                 builder.useSharding(i, shards);
-            bot.addShard(builder.buildBlocking());
-            System.gc();
+            builder.buildAsync();
         }
 
-        // starts the API
-        API.main(tokens.get(5), bot);
+        // report how long startup took; shards that aren't ready by the timeout
+        // keep trying in the background and join when they are
+        boolean complete = allReady.await(READY_TIMEOUT, TimeUnit.MINUTES);
+        long[] times = readyTimes.clone();
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < shards; i++)
+            if (times[i] == 0)
+                missing.add(i);
+        if (!complete && !missing.isEmpty())
+            bot.LOG.warn("Shards not ready after " + READY_TIMEOUT + " minutes, continuing without them for now: " + missing);
+        if (missing.size() == shards)
+            return bot;
+        long[] sorted = new long[shards - missing.size()];
+        int slowest = -1;
+        for (int i = 0, j = 0; i < shards; i++) {
+            if (times[i] == 0)
+                continue;
+            sorted[j++] = times[i];
+            if (slowest < 0 || times[i] > times[slowest])
+                slowest = i;
+        }
+        Arrays.sort(sorted);
+        bot.LOG.info("Started " + sorted.length + " of " + shards + " shards in " + (System.currentTimeMillis() - start) + "ms; time to ready: min "
+                + sorted[0] + "ms, median " + sorted[sorted.length / 2] + "ms, max " + sorted[sorted.length - 1] + "ms (shard " + slowest + ")");
+        return bot;
     }
 
     // protected methods
     protected void addShard(JDA shard) {
-        shards.add(shard);
+        shards[shard.getShardInfo() == null ? 0 : shard.getShardInfo().getShardId()] = shard;
     }
 
     // public getters
     public List<JDA> getShards() {
-        return shards;
+        List<JDA> list = new ArrayList<>(shards.length);
+        for (JDA shard : shards)
+            if (shard != null)
+                list.add(shard);
+        return list;
     }
 
     public TextChannel getTextChannelById(long id) {
+        long guildId = channels.getGuildId(id);
+        if (guildId != 0) {
+            Guild g = getGuildById(guildId);
+            return g == null ? null : g.getTextChannelById(id);
+        }
+        // not indexed yet, so fall back to asking every shard
         for (JDA shard : shards) {
-            TextChannel tc = shard.getTextChannelById(id);
+            TextChannel tc = shard == null ? null : shard.getTextChannelById(id);
             if (tc != null)
                 return tc;
         }
@@ -144,12 +265,41 @@ public class Bot extends ListenerAdapter {
     }
 
     public Guild getGuildById(long id) {
-        for (JDA shard : shards) {
-            Guild g = shard.getGuildById(id);
-            if (g != null)
-                return g;
-        }
-        return null;
+        // Discord puts a guild on shard (id >> 22) % shards
+        JDA shard = shards[(int) ((id >>> 22) % shards.length)];
+        return shard == null ? null : shard.getGuildById(id);
+    }
+
+    /**
+     * Passes the changes recorded by an updater in another process, such as
+     * giveaways it ended on time, to a listener, and drops the dashboards they
+     * touch. An updater in this process changes giveaways through this bot's
+     * manager, whose listeners already hear about them, so then this does
+     * nothing.
+     *
+     * @param listener the listener; only told what changed, not the giveaway
+     */
+    public void followUpdater(Consumer<GiveawayEvent> listener) {
+        if (!separateUpdater)
+            return;
+        updaterCursor = database.changes.getLatestId(ChangeManager.UPDATER);
+        threadpool.scheduleWithFixedDelay(() -> {
+            // anything thrown out of here would stop the reads for good
+            try {
+                for (Change change : database.changes.getChangesAfter(ChangeManager.UPDATER, updaterCursor, FOLLOW_MAX)) {
+                    if (change.type != null) {
+                        dashboards.invalidate(change.guildId);
+                        listener.accept(new GiveawayEvent(change.type, change.guildId, change.messageId, null));
+                    }
+                    updaterCursor = change.id;
+                }
+                if (++updaterReads % TRIM_EVERY == 0 && updaterCursor > 0)
+                    database.changes.deleteUpTo(ChangeManager.UPDATER, updaterCursor);
+            } catch (RuntimeException e) {
+                LOG.fatal("Failed to read the updater's changes: " + e);
+                e.printStackTrace();
+            }
+        }, FOLLOW_EVERY, FOLLOW_EVERY, TimeUnit.MILLISECONDS);
     }
 
     public ScheduledExecutorService getThreadpool() {
@@ -160,14 +310,17 @@ public class Bot extends ListenerAdapter {
         return database;
     }
 
+    public DashboardCache getDashboards() {
+        return dashboards;
+    }
+
     public List<Guild> getManagedGuildsForUser(long userId) {
-        List<Guild> guilds = new LinkedList<>();
-        for (JDA shard : shards) {
-            for (Guild g : shard.getGuilds()) {
-                Member m = g.getMemberById(userId);
-                if (m != null && Constants.canGiveaway(m))
-                    guilds.add(g);
-            }
+        long[] ids = managers.getGuildIds(userId);
+        List<Guild> guilds = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Guild g = getGuildById(id);
+            if (g != null)
+                guilds.add(g);
         }
         return guilds;
     }
@@ -179,33 +332,198 @@ public class Bot extends ListenerAdapter {
     // public methods
     public void shutdown() {
         threadpool.shutdown();
-        shards.forEach(jda -> jda.shutdown());
+        sender.shutdown();
+        getShards().forEach(jda -> jda.shutdown());
         database.shutdown();
     }
 
     public boolean startGiveaway(TextChannel channel, Instant now, int seconds, int winners, String prize) {
+        return startGiveaway(channel, now, seconds, winners, prize, 0, 0L);
+    }
+
+    public boolean startGiveaway(TextChannel channel, Instant now, int seconds, int winners, String prize, int minAccountAge, long requiredRole) {
         if (!Constants.canSendGiveaway(channel))
             return false;
         database.settings.updateColor(channel.getGuild());
         Instant end = now.plusSeconds(seconds);
-        Message msg = new Giveaway(0, channel.getIdLong(), channel.getGuild().getIdLong(), end, winners, prize).render(channel.getGuild().getSelfMember().getColor(), now);
+        Message msg = new Giveaway(0, channel.getIdLong(), channel.getGuild().getIdLong(), end, winners, prize, minAccountAge, requiredRole)
+                .render(channel.getGuild().getSelfMember().getColor(), now);
         channel.sendMessage(msg).queue(m -> {
             m.addReaction(Constants.TADA).queue();
-            database.giveaways.createGiveaway(m, end, winners, prize);
+            if (database.giveaways.createGiveaway(m, end, winners, prize, minAccountAge, requiredRole))
+                setLatestGiveaway(channel.getIdLong(), m.getIdLong());
+            dashboards.invalidate(channel.getGuild().getIdLong());
         }, v -> LOG.warn("Unable to start giveaway: " + v));
         return true;
     }
 
-    public boolean deleteGiveaway(long channelId, long messageId) {
-        TextChannel channel = getTextChannelById(channelId);
+    /**
+     * Starts many giveaways in one guild. The messages are sent a few at a
+     * time, and the giveaways are saved in batches as their messages go out.
+     *
+     * @param guild     the guild
+     * @param now       the current time
+     * @param giveaways the giveaways to start, without message IDs, in channels that the bot can send giveaways in
+     */
+    public void startGiveaways(Guild guild, Instant now, List<Giveaway> giveaways) {
+        database.settings.updateColor(guild);
+        List<Giveaway> pending = new ArrayList<>();
+        AtomicInteger remaining = new AtomicInteger(giveaways.size());
+        for (Giveaway giveaway : giveaways) {
+            TextChannel channel = guild.getTextChannelById(giveaway.channelId);
+            if (channel == null) {
+                started(pending, null, remaining);
+                continue;
+            }
+            sender.submit(channel.sendMessage(giveaway.render(guild.getSelfMember().getColor(), now)), m -> {
+                m.addReaction(Constants.TADA).queue();
+                started(pending, new Giveaway(m.getIdLong(), giveaway.channelId, giveaway.guildId, giveaway.end, giveaway.winners,
+                        giveaway.prize, giveaway.minAccountAge, giveaway.requiredRole), remaining);
+            }, v -> {
+                LOG.warn("Unable to start giveaway: " + v);
+                started(pending, null, remaining);
+            });
+        }
+    }
+
+    private void started(List<Giveaway> pending, Giveaway giveaway, AtomicInteger remaining) {
+        List<Giveaway> batch = null;
+        synchronized (pending) {
+            if (giveaway != null)
+                pending.add(giveaway);
+            if (remaining.decrementAndGet() == 0 || pending.size() >= BATCH_FLUSH) {
+                batch = new ArrayList<>(pending);
+                pending.clear();
+            }
+        }
+        if (batch == null || batch.isEmpty())
+            return;
+        if (database.giveaways.createGiveaways(batch))
+            batch.forEach(g -> setLatestGiveaway(g.channelId, g.messageId));
+        dashboards.invalidate(batch.get(0).guildId);
+    }
+
+    /**
+     * @return the number of giveaways ended, or -1 on failure
+     */
+    public int endGiveaways(long guildId, long[] messageIds) {
+        int ended = database.giveaways.endGiveaways(guildId, messageIds);
+        dashboards.invalidate(guildId);
+        return ended;
+    }
+
+    /**
+     * Deletes many giveaways in one guild, along with their messages
+     *
+     * @return the number of giveaways deleted, or -1 on failure
+     */
+    public int deleteGiveaways(long guildId, long[] messageIds) {
+        List<Giveaway> giveaways = database.giveaways.getGiveaways(guildId, messageIds);
+        int deleted = database.giveaways.deleteGiveaways(guildId, messageIds);
+        dashboards.invalidate(guildId);
+        if (deleted < 0)
+            return deleted;
+        for (Giveaway giveaway : giveaways) {
+            forgetLatestGiveaway(giveaway);
+            TextChannel channel = getTextChannelById(giveaway.channelId);
+            if (channel != null)
+                sender.submit(channel.deleteMessageById(giveaway.messageId), v -> {}, v -> {});
+        }
+        return deleted;
+    }
+
+    /**
+     * @param channelId the ID of a text channel
+     * @return the message ID of the newest giveaway in the channel, running or ended, or 0 if there are none
+     */
+    public long getLatestGiveaway(long channelId) {
+        synchronized (latestGiveaways) {
+            Long latest = latestGiveaways.get(channelId);
+            if (latest != null)
+                return Math.max(latest, 0);
+        }
+        long latest = Math.max(database.giveaways.getLatestGiveaway(channelId), database.history.getLatestGiveaway(channelId));
+        setLatestGiveaway(channelId, latest == 0 ? -1 : latest);
+        return latest;
+    }
+
+    private void setLatestGiveaway(long channelId, long messageId) {
+        synchronized (latestGiveaways) {
+            // a giveaway may have started while the database was being checked
+            Long latest = latestGiveaways.get(channelId);
+            if (latest == null || messageId > latest)
+                latestGiveaways.put(channelId, messageId);
+        }
+    }
+
+    private void forgetLatestGiveaway(Giveaway giveaway) {
+        synchronized (latestGiveaways) {
+            Long latest = latestGiveaways.get(giveaway.channelId);
+            if (latest != null && latest == giveaway.messageId)
+                latestGiveaways.remove(giveaway.channelId);
+        }
+    }
+
+    public boolean setBonusRole(Guild guild, Role role, int weight) {
+        GuildSettings settings = database.settings.setBonusRole(guild, role.getIdLong(), weight);
+        if (settings == null)
+            return false;
+        updateBonusEntries(guild, settings);
+        return true;
+    }
+
+    private void updateBonusEntries(Guild guild, GuildSettings settings) {
+        synchronized (bonusGuilds) {
+            if (settings.bonusRoles.length == 0)
+                bonusGuilds.remove(guild.getIdLong());
+            else
+                bonusGuilds.add(guild.getIdLong());
+        }
+        TLongIntMap weights = new TLongIntHashMap();
+        for (long roleId : settings.bonusRoles) {
+            Role role = guild.getRoleById(roleId);
+            if (role != null)
+                guild.getMembersWithRoles(role).forEach(m -> weights.put(m.getUser().getIdLong(), settings.getWeight(m)));
+        }
+        database.bonuses.setWeights(guild.getIdLong(), weights);
+    }
+
+    private void updateBonusEntry(Member member) {
+        synchronized (bonusGuilds) {
+            if (!bonusGuilds.contains(member.getGuild().getIdLong()))
+                return;
+        }
+        GuildSettings settings = database.settings.getSettings(member.getGuild().getIdLong());
+        if (settings != null)
+            database.bonuses.setWeight(member.getGuild().getIdLong(), member.getUser().getIdLong(), settings.getWeight(member));
+    }
+
+    public boolean deleteGiveaway(Giveaway giveaway) {
+        TextChannel channel = getTextChannelById(giveaway.channelId);
         try {
-            channel.deleteMessageById(messageId).queue();
+            channel.deleteMessageById(giveaway.messageId).queue();
         } catch (Exception e) {
         }
-        return database.giveaways.deleteGiveaway(messageId);
+        forgetLatestGiveaway(giveaway);
+        boolean deleted = database.giveaways.deleteGiveaway(giveaway.messageId);
+        dashboards.invalidate(giveaway.guildId);
+        return deleted;
+    }
+
+    public boolean endGiveaway(long guildId, long messageId) {
+        boolean ended = database.giveaways.endGiveaway(messageId);
+        dashboards.invalidate(guildId);
+        return ended;
     }
 
     // events
+    @Override
+    public void onTextChannelDelete(TextChannelDeleteEvent event) {
+        synchronized (latestGiveaways) {
+            latestGiveaways.remove(event.getChannel().getIdLong());
+        }
+    }
+
     @Override
     public void onRoleUpdateColor(RoleUpdateColorEvent event) {
         if (event.getGuild().getSelfMember().getRoles().contains(event.getRole()))
@@ -216,11 +534,33 @@ public class Bot extends ListenerAdapter {
     public void onGuildMemberRoleAdd(GuildMemberRoleAddEvent event) {
         if (event.getMember().equals(event.getGuild().getSelfMember()))
             database.settings.updateColor(event.getGuild());
+        updateBonusEntry(event.getMember());
     }
 
     @Override
     public void onGuildMemberRoleRemove(GuildMemberRoleRemoveEvent event) {
         if (event.getMember().equals(event.getGuild().getSelfMember()))
             database.settings.updateColor(event.getGuild());
+        updateBonusEntry(event.getMember());
+    }
+
+    @Override
+    public void onGuildMemberLeave(GuildMemberLeaveEvent event) {
+        synchronized (bonusGuilds) {
+            if (!bonusGuilds.contains(event.getGuild().getIdLong()))
+                return;
+        }
+        database.bonuses.setWeight(event.getGuild().getIdLong(), event.getMember().getUser().getIdLong(), 1);
+    }
+
+    @Override
+    public void onRoleDelete(RoleDeleteEvent event) {
+        synchronized (bonusGuilds) {
+            if (!bonusGuilds.contains(event.getGuild().getIdLong()))
+                return;
+        }
+        GuildSettings settings = database.settings.setBonusRole(event.getGuild(), event.getRole().getIdLong(), 1);
+        if (settings != null)
+            updateBonusEntries(event.getGuild(), settings);
     }
 }
@@ -15,6 +15,8 @@
  */
 package com.jagrosh.giveawaybot;
 
+import com.jagrosh.giveawaybot.cache.NameIndex;
+import com.jagrosh.giveawaybot.cache.PermissionCache;
 import com.jagrosh.jdautilities.commandclient.Command;
 import net.dv8tion.jda.core.Permission;
 import net.dv8tion.jda.core.entities.Member;
@@ -36,9 +38,13 @@ public class Constants {
     public static final String INVITE = "https://discordapp.com/oauth2/authorize?permissions=347200&scope=bot&client_id=294882584201003009";
     public static final int MIN_TIME = 10;
     public static final int MAX_TIME = 60 * 60 * 24 * 7;
+    public static final int MIN_WINNERS = 1;
+    public static final int MAX_WINNERS = 15;
     public static final String WEBSITE = "http://giveawaybot.party";
     public static final String GITHUB = "https://github.com/jagrosh/GiveawayBot";
     public static final String VERSION = "2.0";
+    public static final PermissionCache PERMISSIONS = new PermissionCache();
+    public static final NameIndex NAMES = new NameIndex();
     public static final String PERMS = "`Read Messages`, `Write Messages`, `Read Message History`, `Embed Links`, `Use External Emoji`, and `Add Reactions`";
     public static final Command.Category GIVEAWAY = new Command.Category("Giveaway", event -> {
         if (event.getGuild() == null) {
@@ -55,13 +61,16 @@ public class Constants {
         return seconds >= MIN_TIME && seconds <= MAX_TIME;
     }
 
+    public static final boolean validWinners(int winners) {
+        return winners >= MIN_WINNERS && winners <= MAX_WINNERS;
+    }
+
     public static final boolean canSendGiveaway(TextChannel channel) {
         return channel.getGuild().getSelfMember().hasPermission(channel, Permission.MESSAGE_READ, Permission.MESSAGE_WRITE,
                 Permission.MESSAGE_HISTORY, Permission.MESSAGE_EMBED_LINKS, Permission.MESSAGE_EXT_EMOJI, Permission.MESSAGE_ADD_REACTION);
     }
 
     public static final boolean canGiveaway(Member member) {
-        return member.hasPermission(Permission.MANAGE_SERVER) ||
-                member.getRoles().stream().anyMatch(r -> r.getName().equalsIgnoreCase("giveaways"));
+        return PERMISSIONS.canGiveaway(member);
     }
 }
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2017 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.giveawaybot;
+
+import com.jagrosh.giveawaybot.entities.Giveaway;
+import com.jagrosh.giveawaybot.entities.GiveawayEvent;
+import com.jagrosh.giveawaybot.util.JsonWriter;
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Fans giveaway changes out to the clients streaming each guild's events.
+ * <p>
+ * Every client has a small buffer. A client that falls behind loses its
+ * oldest events and is sent a "resync" event, which tells it to reload the
+ * dashboard instead of trusting its state.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class EventStream implements Consumer<GiveawayEvent> {
+
+    private final static int BUFFER_SIZE = 64;
+
+    private final TLongObjectMap<List<Client>> clients = new TLongObjectHashMap<>();
+    private final int maxClients;
+    private int count = 0;
+
+    /**
+     * @param maxClients the most clients that can stream at once; each one holds a server thread
+     */
+    public EventStream(int maxClients) {
+        this.maxClients = maxClients;
+    }
+
+    /**
+     * @param guildId the ID of the guild to stream
+     * @return a new client, or null if there are already too many
+     */
+    public synchronized Client subscribe(long guildId) {
+        if (count >= maxClients)
+            return null;
+        List<Client> list = clients.get(guildId);
+        if (list == null) {
+            list = new LinkedList<>();
+            clients.put(guildId, list);
+        }
+        Client client = new Client(guildId);
+        list.add(client);
+        count++;
+        return client;
+    }
+
+    public synchronized void unsubscribe(Client client) {
+        List<Client> list = clients.get(client.guildId);
+        if (list != null && list.remove(client)) {
+            count--;
+            if (list.isEmpty())
+                clients.remove(client.guildId);
+        }
+    }
+
+    @Override
+    public void accept(GiveawayEvent event) {
+        Client[] targets;
+        synchronized (this) {
+            List<Client> list = clients.get(event.guildId);
+            if (list == null)
+                return;
+            targets = list.toArray(new Client[list.size()]);
+        }
+        String message = format(event);
+        for (Client client : targets)
+            client.offer(message);
+    }
+
+    // formats an event once for all of its clients
+    private static String format(GiveawayEvent event) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            JsonWriter json = new JsonWriter(out).beginObject()
+                    .name("id").value(Long.toString(event.messageId));
+            Giveaway giveaway = event.giveaway;
+            if (giveaway != null)
+                json.name("channel").value(Long.toString(giveaway.channelId))
+                        .name("prize").value(giveaway.prize == null || giveaway.prize.isEmpty() ? "No prize listed" : giveaway.prize)
+                        .name("winners").value(giveaway.winners)
+                        .name("end").value(giveaway.end.atZone(ZoneId.of("Z")).format(DateTimeFormatter.RFC_1123_DATE_TIME));
+            json.endObject().flush();
+        } catch (IOException e) {
+            // can't happen when writing to memory
+        }
+        return "event: " + event.type.name().toLowerCase() + "\ndata: " + new String(out.toByteArray(), StandardCharsets.UTF_8) + "\n\n";
+    }
+
+    public static class Client {
+
+        private final long guildId;
+        private final ArrayDeque<String> buffer = new ArrayDeque<>(BUFFER_SIZE);
+        private boolean dropped = false;
+
+        private Client(long guildId) {
+            this.guildId = guildId;
+        }
+
+        private synchronized void offer(String message) {
+            if (buffer.size() == BUFFER_SIZE) {
+                buffer.poll();
+                dropped = true;
+            }
+            buffer.add(message);
+            notifyAll();
+        }
+
+        /**
+         * Waits for the next message to send
+         *
+         * @param timeout the most milliseconds to wait
+         * @return the next message, or null if there wasn't one in time
+         * @throws InterruptedException
+         */
+        public synchronized String take(long timeout) throws InterruptedException {
+            if (buffer.isEmpty())
+                wait(timeout);
+            if (dropped) {
+                dropped = false;
+                return "event: resync\ndata: {}\n\n";
+            }
+            return buffer.poll();
+        }
+    }
+}
@@ -42,7 +42,19 @@ public class GiveawayBot {
                     Updater.main();
                     break;
                 case "bot":
-                    Bot.main(Integer.parseInt(args[1]));
+                case "combined":
+                    int shards = Integer.parseInt(args[1]);
+                    int concurrency = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+                    // checked before anything logs in, since the bot paces its shards by these
+                    if (shards < 1 || concurrency < 1) {
+                        LOG.fatal("The number of shards and the identify concurrency must both be at least 1");
+                        break;
+                    }
+                    if (args[0].equals("bot"))
+                        Bot.main(shards, concurrency, true);
+                    else
+                        // the bot and the updater in one process, for small deployments
+                        Updater.combined(Bot.main(shards, concurrency, false));
                     break;
                 default:
                     LOG.fatal(String.format("Invalid startup type '%s'", args[0]));
@@ -15,27 +15,98 @@
  */
 package com.jagrosh.giveawaybot;
 
+import com.jagrosh.giveawaybot.cache.GiveawayRegistry;
 import com.jagrosh.giveawaybot.database.DatabaseConnector;
-import com.jagrosh.giveawaybot.entities.Status;
+import com.jagrosh.giveawaybot.database.managers.ChangeManager;
+import com.jagrosh.giveawaybot.database.managers.ChangeManager.Change;
+import com.jagrosh.giveawaybot.database.managers.GuildSettingsManager.GuildSettings;
+import com.jagrosh.giveawaybot.entities.Giveaway;
+import com.jagrosh.giveawaybot.entities.GiveawayEvent;
+import com.jagrosh.giveawaybot.entities.RecentWinners;
+import com.jagrosh.giveawaybot.metrics.*;
 import com.jagrosh.giveawaybot.rest.RestJDA;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.TLongLongMap;
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongLongHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.dv8tion.jda.core.entities.Message;
 import net.dv8tion.jda.core.utils.SimpleLog;
 
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.time.Clock;
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 
 /**
+ * Ends giveaways and keeps their messages up to date. The update loop reads
+ * the time from a clock, so it can be driven faster than real time.
+ * <p>
+ * The updater keeps the giveaways to work on in a registry. In its own
+ * process it follows the changes the bot records in the database; in the
+ * bot's process it's told about them directly. Either way, giveaways that
+ * are ended early are ended as soon as the change is seen, rather than on
+ * the next loop.
+ *
  * @author John Grosh (john.a.grosh@gmail.com)
  */
 public class Updater {
 
+    private final static int METRICS_PORT = 8183;
+    private final static Histogram TICK_TIME = Metrics.histogram("giveawaybot_updater_tick_seconds", "Time taken by each update loop", "");
+    private final static Histogram TICK_LAG = Metrics.histogram("giveawaybot_updater_lag_seconds", "How late each update loop started", "");
+    private final static Counter ENDED = Metrics.counter("giveawaybot_updater_ended_total", "Giveaways ended by the updater", "");
+    private final static Counter OVERRUNS = Metrics.counter("giveawaybot_updater_overruns_total", "Update loops that took longer than a second", "");
+    private final static Histogram END_LATENESS = Metrics.histogram("giveawaybot_updater_end_lateness_seconds", "How long after their end time the winners of giveaways were announced", "");
+    private final static Counter REFRESHED = Metrics.counter("giveawaybot_updater_refreshes_total", "Giveaway refreshes by outcome", "outcome=\"sent\"");
+    private final static Counter SKIPPED = Metrics.counter("giveawaybot_updater_refreshes_total", "Giveaway refreshes by outcome", "outcome=\"skipped\"");
+    private final static Counter COALESCED = Metrics.counter("giveawaybot_updater_refreshes_total", "Giveaway refreshes by outcome", "outcome=\"coalesced\"");
+    private final static long TICK_BUDGET = TimeUnit.SECONDS.toNanos(1);
+    private final static long PENDING_TIMEOUT = TimeUnit.MINUTES.toNanos(1); // after this, an edit's callback is assumed lost
+    private final static long CHANGES_EVERY = 100; // milliseconds between reads of the bot's changes
+    private final static int CHANGES_MAX = 1000; // changes to read at once
+    private final static int SUMMARY_EVERY = 60; // ticks between logged summaries
+    private final static SimpleLog LOG = SimpleLog.getLog("Updater");
+
+    private final DatabaseConnector database;
+    private final RestJDA restJDA;
+    private final Clock clock;
+    private final GiveawayRegistry registry; // the giveaways to work on
+    private final RecentWinners recent = new RecentWinners(); // remembers recent winners for guilds with a win cooldown
+    private long index = 0; // the number of iterations run, to track time
+    private final TLongLongMap pending = new TLongLongHashMap(); // messages with an edit in flight, to when it was queued
+    private long cursor = -1; // the last of the bot's changes read, or -1 when they aren't followed
+
+    // what this tick has done, and what has been done since the last summary
+    private final Stats tick = new Stats(), window = new Stats();
+    private long windowTicks = 0, windowTime = 0, windowMax = 0;
+    private int windowOverruns = 0;
+    private final LongAdder latenessCount = new LongAdder(), latenessSum = new LongAdder(); // in ms
+    private final AtomicLong latenessMax = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * @param database the database holding the giveaways
+     * @param restJDA  the rest client to update messages with
+     * @param clock    the clock that decides which giveaways are due
+     * @param registry the giveaways to work on, filled by {@link #follow()} or by attaching it to the bot's manager
+     */
+    public Updater(DatabaseConnector database, RestJDA restJDA, Clock clock, GiveawayRegistry registry) {
+        this.database = database;
+        this.restJDA = restJDA;
+        this.clock = clock;
+        this.registry = registry;
+    }
+
     /**
      * Runs the application as a giveaway updater
      *
@@ -47,54 +118,341 @@ public class Updater {
         // 1 - database host
         // 2 - database username
         // 3 - database pass
+        // 4 - (optional) the API to use instead of Discord's, like a local stand-in
         List<String> tokens = Files.readAllLines(Paths.get("updater.txt"));
 
         // connects to the database
         DatabaseConnector database = new DatabaseConnector(tokens.get(1), tokens.get(2), tokens.get(3));
 
+        // record what this process does, like ending giveaways on time, for the bot's dashboards
+        database.giveaways.addListener(event -> database.changes.record(ChangeManager.UPDATER, event));
+
         // migrate the old giveaways if the file exists
         migrateGiveaways(database);
 
         // make a 'JDA' rest client
-        RestJDA restJDA = new RestJDA(tokens.get(0));
+        RestJDA restJDA = tokens.size() > 4 && !tokens.get(4).trim().isEmpty()
+                ? new RestJDA(tokens.get(0), RestJDA.redirect(tokens.get(4).trim()))
+                : new RestJDA(tokens.get(0));
+
+        // serve metrics for scraping
+        new MetricsServer(METRICS_PORT).start();
+
+        Updater updater = new Updater(database, restJDA, Clock.systemUTC(), new GiveawayRegistry());
+        updater.follow();
+        ScheduledExecutorService pool = schedule(updater);
+
+        // read the bot's changes several times a second, so giveaways ended early end right away
+        pool.scheduleWithFixedDelay(() -> {
+            // anything thrown out of here would stop the reads for good
+            try {
+                updater.readChanges();
+            } catch (RuntimeException e) {
+                LOG.fatal("Failed to read changes: " + e);
+                e.printStackTrace();
+            }
+        }, CHANGES_EVERY, CHANGES_EVERY, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs a giveaway updater alongside a bot, sharing its database. The bot's
+     * API already serves the metrics of the whole process.
+     *
+     * @param bot the bot
+     * @throws Exception
+     */
+    public static void combined(Bot bot) throws Exception {
+        // the updater uses the bot's token from the bot's config
+        List<String> tokens = Files.readAllLines(Paths.get("config.txt"));
+        DatabaseConnector database = bot.getDatabase();
+        migrateGiveaways(database);
+
+        GiveawayRegistry registry = new GiveawayRegistry();
+        registry.attach(database.giveaways);
+        Updater updater = new Updater(database, new RestJDA(tokens.get(0)), Clock.systemUTC(), registry);
+        ScheduledExecutorService pool = schedule(updater);
 
-        // make a pool to run the update loop
+        // end giveaways that are ended early right away, on the loop's thread
+        database.giveaways.addListener(event -> {
+            if (event.type == GiveawayEvent.Type.END)
+                pool.execute(updater::endRequested);
+        });
+    }
+
+    // runs the update loop once a second
+    private static ScheduledExecutorService schedule(Updater updater) {
         ScheduledExecutorService pool = Executors.newSingleThreadScheduledExecutor();
 
-        // create an index to track time
-        AtomicLong index = new AtomicLong(0);
+        // when the last iteration finished, to measure how late the next one starts
+        AtomicLong finished = new AtomicLong(Long.MIN_VALUE);
 
         pool.scheduleWithFixedDelay(() -> {
-            // set vars for this iteration
-            long current = index.getAndIncrement();
-            Instant now = Instant.now();
-
-            // end giveaways with end status
-            database.giveaways.getGiveaways(Status.ENDNOW).forEach(giveaway -> {
-                database.giveaways.deleteGiveaway(giveaway.messageId);
-                giveaway.end(restJDA);
-            });
+            long start = System.nanoTime();
+            if (finished.get() != Long.MIN_VALUE)
+                TICK_LAG.record(start - finished.get() - TimeUnit.SECONDS.toNanos(1));
+            // anything thrown out of here would stop giveaways from ending for good
+            try {
+                updater.tick();
+            } catch (RuntimeException e) {
+                LOG.fatal("Failed to run the update loop: " + e);
+                e.printStackTrace();
+            }
+            finished.set(System.nanoTime());
+        }, 0, 1, TimeUnit.SECONDS);
+        return pool;
+    }
+
+    /**
+     * Runs one iteration of the update loop, which expects to be run once a
+     * second by the clock
+     */
+    public void tick() {
+        // set vars for this iteration
+        long current = index++;
+        Instant now = clock.instant();
+        long start = System.nanoTime();
+        long deadline = start + TICK_BUDGET;
+        TickEvent event = new TickEvent();
+        event.begin();
+        tick.reset();
+
+        // end giveaways with end status; these were ended early, so their lateness isn't measured
+        end(registry.takeEnded(), now, false);
+
+        // end giveaways that have run out of time
+        end(endingBefore(now), now, true);
+
+        List<Giveaway> updates;
+        if (current % 300 == 0) {
+            // forget winners whose cooldowns have passed
+            recent.sweep(now);
+
+            // forget giveaways that ended long enough ago that nobody will reroll them
+            query(() -> database.history.deleteEndedBefore(now.minus(30, ChronoUnit.DAYS)));
+
+            // forget changes that have been read
+            if (cursor > 0)
+                query(() -> database.changes.deleteUpTo(ChangeManager.BOT, cursor));
+
+            // update all giveaways, soonest first, so any skipped for time are the furthest from ending;
+            // reloading the registry also picks up anything it missed
+            updates = query(() -> registry.load(database.giveaways));
+        } else if (current % 60 == 0) {
+            // update giveaways within 1 hour of ending
+            updates = endingBefore(now.plusSeconds(60 * 60));
+        } else if (current % 5 == 0) {
+            // update giveaways within 3 minutes of ending
+            updates = endingBefore(now.plusSeconds(3 * 60));
+        } else {
+            // update giveaways within 10 seconds of ending
+            updates = endingBefore(now.plusSeconds(6));
+        }
+        updates.forEach(giveaway -> refresh(giveaway, now, deadline));
+
+        long elapsed = System.nanoTime() - start;
+        boolean overran = elapsed > TICK_BUDGET;
+        TICK_TIME.record(elapsed);
+        if (overran)
+            OVERRUNS.increment();
+        window.add(tick);
+        windowTicks++;
+        windowTime += elapsed;
+        windowMax = Math.max(windowMax, elapsed);
+        if (overran)
+            windowOverruns++;
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.tick = current;
+            event.queryTime = tick.query;
+            event.renderTime = tick.render;
+            event.enqueueTime = tick.enqueue;
+            event.ended = tick.ended;
+            event.refreshed = tick.refreshed;
+            event.skipped = tick.skipped;
+            event.coalesced = tick.coalesced;
+            event.overran = overran;
+            event.commit();
+        }
+
+        if (index % SUMMARY_EVERY == 0)
+            summarize();
+    }
 
-            // end giveaways that have run out of time
-            database.giveaways.getGiveawaysEndingBefore(now.plusMillis(1900)).forEach(giveaway -> {
-                database.giveaways.deleteGiveaway(giveaway.messageId);
-                giveaway.end(restJDA);
+    /**
+     * Starts following the changes recorded by a bot in another process, from
+     * the newest one
+     */
+    public void follow() {
+        cursor = database.changes.getLatestId(ChangeManager.BOT);
+        // the registry also hears about the giveaways this updater deletes
+        registry.attach(database.giveaways);
+    }
+
+    /**
+     * Applies the changes the bot has recorded since the last read to the
+     * registry, and ends the giveaways it ended early; must run on the update
+     * loop's thread
+     */
+    public void readChanges() {
+        if (cursor < 0)
+            return;
+        tick.reset();
+        List<Change> changes = query(() -> database.changes.getChangesAfter(ChangeManager.BOT, cursor, CHANGES_MAX));
+        if (!changes.isEmpty()) {
+            // the changes don't hold the giveaways, so read the new ones in one go
+            TLongArrayList created = new TLongArrayList();
+            for (Change change : changes)
+                if (change.type == GiveawayEvent.Type.CREATE || change.type == GiveawayEvent.Type.REFRESH)
+                    created.add(change.messageId);
+            TLongObjectMap<Giveaway> giveaways = new TLongObjectHashMap<>();
+            if (!created.isEmpty())
+                query(() -> database.giveaways.getGiveaways(created.toArray())).forEach(giveaway -> giveaways.put(giveaway.messageId, giveaway));
+            boolean ended = false;
+            for (Change change : changes) {
+                if (change.type != null)
+                    registry.accept(new GiveawayEvent(change.type, change.guildId, change.messageId, giveaways.get(change.messageId)));
+                ended |= change.type == GiveawayEvent.Type.END;
+                cursor = change.id;
+            }
+            if (ended)
+                end(registry.takeEnded(), clock.instant(), false);
+        }
+        window.add(tick);
+    }
+
+    /**
+     * Ends the giveaways in the registry that were ended early, without
+     * waiting for the next iteration; must run on the update loop's thread
+     */
+    public void endRequested() {
+        tick.reset();
+        end(registry.takeEnded(), clock.instant(), false);
+        window.add(tick);
+    }
+
+    private List<Giveaway> endingBefore(Instant end) {
+        return registry.getGiveawaysEndingBefore(end);
+    }
+
+    private void end(List<Giveaway> giveaways, Instant now, boolean timed) {
+        for (Giveaway giveaway : giveaways) {
+            query(() -> database.history.addGiveaway(giveaway, now));
+            query(() -> database.giveaways.deleteGiveaway(giveaway.messageId));
+            long start = System.nanoTime();
+            giveaway.end(restJDA, database, recent, now, timed ? () -> announced(giveaway) : () -> {
             });
+            tick.enqueue += System.nanoTime() - start;
+            tick.ended++;
+            ENDED.increment();
+        }
+    }
 
-            if (current % 300 == 0) {
-                // update all giveaways
-                database.giveaways.getGiveaways().forEach(giveaway -> giveaway.update(restJDA, database, now));
-            } else if (current % 60 == 0) {
-                // update giveaways within 1 hour of ending
-                database.giveaways.getGiveawaysEndingBefore(now.plusSeconds(60 * 60)).forEach(giveaway -> giveaway.update(restJDA, database, now));
-            } else if (current % 5 == 0) {
-                // update giveaways within 3 minutes of ending
-                database.giveaways.getGiveawaysEndingBefore(now.plusSeconds(3 * 60)).forEach(giveaway -> giveaway.update(restJDA, database, now));
-            } else {
-                // update giveaways within 10 seconds of ending
-                database.giveaways.getGiveawaysEndingBefore(now.plusSeconds(6)).forEach(giveaway -> giveaway.update(restJDA, database, now));
+    private void refresh(Giveaway giveaway, Instant now, long deadline) {
+        // ending giveaways on time matters more than counting down
+        if (System.nanoTime() > deadline) {
+            tick.skipped++;
+            SKIPPED.increment();
+            return;
+        }
+        // the edit still in flight will be followed by the next refresh anyway
+        synchronized (pending) {
+            if (pending.containsKey(giveaway.messageId) && System.nanoTime() - pending.get(giveaway.messageId) < PENDING_TIMEOUT) {
+                tick.coalesced++;
+                COALESCED.increment();
+                return;
             }
-        }, 0, 1, TimeUnit.SECONDS);
+        }
+        GuildSettings settings = query(() -> database.settings.getSettings(giveaway.guildId));
+        long start = System.nanoTime();
+        Message message = giveaway.render(settings == null ? null : settings.color, now);
+        long rendered = System.nanoTime();
+        // only this thread adds, so nothing else can have queued an edit since the check;
+        // it's added before queueing because the callback can run before queue returns
+        synchronized (pending) {
+            pending.put(giveaway.messageId, rendered);
+        }
+        try {
+            giveaway.update(restJDA, database, message, () -> {
+                synchronized (pending) {
+                    if (pending.get(giveaway.messageId) == rendered)
+                        pending.remove(giveaway.messageId);
+                }
+            });
+        } catch (RuntimeException e) {
+            synchronized (pending) {
+                pending.remove(giveaway.messageId);
+            }
+            throw e;
+        }
+        tick.render += rendered - start;
+        tick.enqueue += System.nanoTime() - rendered;
+        tick.refreshed++;
+        REFRESHED.increment();
+    }
+
+    // called from the rest client's threads once a giveaway's winners are announced
+    private void announced(Giveaway giveaway) {
+        long lateness = clock.millis() - giveaway.end.toEpochMilli();
+        END_LATENESS.record(TimeUnit.MILLISECONDS.toNanos(lateness));
+        latenessCount.increment();
+        latenessSum.add(lateness);
+        latenessMax.accumulateAndGet(lateness, Math::max);
+        EndLatenessEvent event = new EndLatenessEvent();
+        if (event.shouldCommit()) {
+            event.guildId = giveaway.guildId;
+            event.messageId = giveaway.messageId;
+            event.lateness = lateness;
+            event.commit();
+        }
+    }
+
+    private <T> T query(Supplier<T> query) {
+        long start = System.nanoTime();
+        try {
+            return query.get();
+        } finally {
+            tick.query += System.nanoTime() - start;
+        }
+    }
+
+    private void summarize() {
+        long ends = latenessCount.sumThenReset();
+        long lateSum = latenessSum.sumThenReset();
+        long lateMax = latenessMax.getAndSet(Long.MIN_VALUE);
+        LOG.info(String.format("%d ticks: %.1fms mean, %.1fms max, %d overran | query %.1fms, render %.1fms, enqueue %.1fms | "
+                        + "%d ended, %s | %d refreshed, %d skipped, %d coalesced",
+                windowTicks, windowTime / 1e6 / windowTicks, windowMax / 1e6, windowOverruns,
+                window.query / 1e6, window.render / 1e6, window.enqueue / 1e6,
+                window.ended, ends == 0 ? "none announced" : String.format("%d announced %dms late on average, %dms at most", ends, lateSum / ends, lateMax),
+                window.refreshed, window.skipped, window.coalesced));
+        window.reset();
+        windowTicks = 0;
+        windowTime = 0;
+        windowMax = 0;
+        windowOverruns = 0;
+    }
+
+    // the work done by one or more ticks
+    private static class Stats {
+
+        private long query, render, enqueue; // nanoseconds
+        private int ended, refreshed, skipped, coalesced;
+
+        private void add(Stats other) {
+            query += other.query;
+            render += other.render;
+            enqueue += other.enqueue;
+            ended += other.ended;
+            refreshed += other.refreshed;
+            skipped += other.skipped;
+            coalesced += other.coalesced;
+        }
+
+        private void reset() {
+            query = render = enqueue = 0;
+            ended = refreshed = skipped = coalesced = 0;
+        }
     }
 
     private static void migrateGiveaways(DatabaseConnector connector) {
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2017 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.giveawaybot.cache;
+
+import gnu.trove.map.TLongLongMap;
+import gnu.trove.map.hash.TLongLongHashMap;
+import net.dv8tion.jda.core.entities.Guild;
+import net.dv8tion.jda.core.entities.TextChannel;
+import net.dv8tion.jda.core.events.channel.text.TextChannelCreateEvent;
+import net.dv8tion.jda.core.events.channel.text.TextChannelDeleteEvent;
+import net.dv8tion.jda.core.events.guild.GuildJoinEvent;
+import net.dv8tion.jda.core.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.core.events.guild.GuildReadyEvent;
+import net.dv8tion.jda.core.hooks.ListenerAdapter;
+
+/**
+ * Maps every text channel the bot can see to its guild, so a channel can be
+ * found from the guild's shard instead of asking every shard.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class ChannelIndex extends ListenerAdapter {
+
+    private final TLongLongMap channels = new TLongLongHashMap(); // channel -> guild, 0 when absent
+
+    /**
+     * @param channelId the ID of a text channel
+     * @return the ID of the channel's guild, or 0 if the channel isn't known
+     */
+    public long getGuildId(long channelId) {
+        synchronized (channels) {
+            return channels.get(channelId);
+        }
+    }
+
+    private void add(Guild guild) {
+        synchronized (channels) {
+            for (TextChannel tc : guild.getTextChannels())
+                channels.put(tc.getIdLong(), guild.getIdLong());
+        }
+    }
+
+    private void remove(Guild guild) {
+        synchronized (channels) {
+            for (TextChannel tc : guild.getTextChannels())
+                channels.remove(tc.getIdLong());
+        }
+    }
+
+    @Override
+    public void onGuildReady(GuildReadyEvent event) {
+        add(event.getGuild());
+    }
+
+    @Override
+    public void onGuildJoin(GuildJoinEvent event) {
+        add(event.getGuild());
+    }
+
+    @Override
+    public void onGuildLeave(GuildLeaveEvent event) {
+        remove(event.getGuild());
+    }
+
+    @Override
+    public void onTextChannelCreate(TextChannelCreateEvent event) {
+        synchronized (channels) {
+            channels.put(event.getChannel().getIdLong(), event.getGuild().getIdLong());
+        }
+    }
+
+    @Override
+    public void onTextChannelDelete(TextChannelDeleteEvent event) {
+        synchronized (channels) {
+            channels.remove(event.getChannel().getIdLong());
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2017 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.giveawaybot.cache;
+
+import gnu.trove.map.TLongLongMap;
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongLongHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+import java.util.zip.CRC32;
+
+/**
+ * Holds the rendered dashboard of each guild.
+ * <p>
+ * The bot drops a guild's dashboard whenever it starts, ends or deletes one
+ * of its giveaways. The updater ends giveaways from another process, so a
+ * dashboard also expires when its first giveaway is due to end, and in any
+ * case after a minute so channel changes show up.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class DashboardCache {
+
+    private static final long MAX_AGE = 60 * 1000;
+
+    private final TLongObjectMap<Snapshot> snapshots = new TLongObjectHashMap<>();
+    private final TLongLongMap generations = new TLongLongHashMap(); // bumped on every invalidation
+
+    /**
+     * @param guildId the ID of a guild
+     * @param now     the current time, in epoch milliseconds
+     * @return the guild's cached dashboard, or null if there isn't a fresh one
+     */
+    public synchronized Snapshot get(long guildId, long now) {
+        Snapshot snapshot = snapshots.get(guildId);
+        if (snapshot == null)
+            return null;
+        if (snapshot.expires <= now) {
+            snapshots.remove(guildId);
+            return null;
+        }
+        return snapshot;
+    }
+
+    /**
+     * @param guildId the ID of a guild
+     * @return a token to pass to {@link #put}, taken before reading anything the dashboard is built from
+     */
+    public synchronized long generation(long guildId) {
+        return generations.get(guildId);
+    }
+
+    /**
+     * Caches a dashboard, unless the guild was invalidated while it was being built
+     *
+     * @param guildId    the ID of a guild
+     * @param generation the token from {@link #generation} before the dashboard was built
+     * @param body       the rendered dashboard
+     * @param now        the current time, in epoch milliseconds
+     * @param firstEnd   when the first giveaway on the dashboard ends, in epoch milliseconds
+     * @return the snapshot, whether or not it was cached
+     */
+    public synchronized Snapshot put(long guildId, long generation, byte[] body, long now, long firstEnd) {
+        Snapshot snapshot = new Snapshot(body, Math.min(now + MAX_AGE, firstEnd));
+        if (generations.get(guildId) == generation)
+            snapshots.put(guildId, snapshot);
+        return snapshot;
+    }
+
+    public synchronized void invalidate(long guildId) {
+        snapshots.remove(guildId);
+        generations.adjustOrPutValue(guildId, 1, 1);
+    }
+
+    public static class Snapshot {
+
+        public final byte[] body;
+        public final String etag;
+        private final long expires;
+
+        private Snapshot(byte[] body, long expires) {
+            this.body = body;
+            this.expires = expires;
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            this.etag = "\"" + Long.toHexString(crc.getValue()) + "-" + Integer.toHexString(body.length) + "\"";
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2017 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.giveawaybot.cache;
+
+import com.jagrosh.giveawaybot.database.managers.GiveawayManager;
+import com.jagrosh.giveawaybot.entities.Giveaway;
+import com.jagrosh.giveawaybot.entities.GiveawayEvent;
+import com.jagrosh.giveawaybot.entities.Status;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+/**
+ * Holds every running giveaway in memory, ordered by end time, so that the
+ * updater can find the giveaways it has to end and refresh without polling
+ * the database.
+ * <p>
+ * The registry is kept up to date by the giveaway manager's events. Changes
+ * made by another process have to be passed in as events, or picked up by
+ * reloading the registry.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class GiveawayRegistry implements Consumer<GiveawayEvent> {
+
+    private final static Comparator<Giveaway> BY_END = Comparator.<Giveaway, Instant>comparing(g -> g.end)
+            .thenComparingLong(g -> g.messageId);
+
+    private final TLongObjectMap<Giveaway> giveaways = new TLongObjectHashMap<>();
+    private final TreeSet<Giveaway> byEnd = new TreeSet<>(BY_END);
+    private final TLongArrayList ended = new TLongArrayList(); // giveaways ended early, waiting to be announced
+
+    /**
+     * Starts listening to a manager, and loads the giveaways it already has
+     *
+     * @param manager the manager
+     */
+    public synchronized void attach(GiveawayManager manager) {
+        // listening first means nothing is missed; events fired during the
+        // load wait for it, so they're applied on top of what it read
+        manager.addListener(this);
+        load(manager);
+    }
+
+    /**
+     * Replaces everything in the registry with what a manager has stored
+     *
+     * @param manager the manager
+     * @return every giveaway, soonest to end first
+     */
+    public synchronized List<Giveaway> load(GiveawayManager manager) {
+        giveaways.clear();
+        byEnd.clear();
+        ended.resetQuick();
+        for (Giveaway giveaway : manager.getGiveaways())
+            put(giveaway);
+        for (Giveaway giveaway : manager.getGiveaways(Status.ENDNOW))
+            ended.add(giveaway.messageId);
+        return getGiveaways();
+    }
+
+    @Override
+    public synchronized void accept(GiveawayEvent event) {
+        switch (event.type) {
+            case CREATE:
+            case REFRESH:
+                if (event.giveaway != null)
+                    put(event.giveaway);
+                break;
+            case END:
+                Giveaway giveaway = giveaways.get(event.messageId);
+                if (giveaway != null && giveaway.guildId == event.guildId)
+                    ended.add(event.messageId);
+                break;
+            case DELETE:
+                // like ends, a delete only counts if it's from the giveaway's own guild
+                giveaway = giveaways.get(event.messageId);
+                if (giveaway != null && giveaway.guildId == event.guildId)
+                    remove(event.messageId);
+                break;
+        }
+    }
+
+    /**
+     * @return the giveaways that were ended early since the last call
+     */
+    public synchronized List<Giveaway> takeEnded() {
+        List<Giveaway> list = new ArrayList<>(ended.size());
+        for (int i = 0; i < ended.size(); i++) {
+            Giveaway giveaway = giveaways.get(ended.get(i));
+            if (giveaway != null && !list.contains(giveaway))
+                list.add(giveaway);
+        }
+        ended.resetQuick();
+        return list;
+    }
+
+    /**
+     * @param end the cutoff
+     * @return the giveaways ending before the cutoff, soonest first
+     */
+    public synchronized List<Giveaway> getGiveawaysEndingBefore(Instant end) {
+        return new ArrayList<>(byEnd.headSet(new Giveaway(Long.MIN_VALUE, 0L, 0L, end, 0, null, 0, 0L)));
+    }
+
+    /**
+     * @return every giveaway, soonest to end first
+     */
+    public synchronized List<Giveaway> getGiveaways() {
+        return new ArrayList<>(byEnd);
+    }
+
+    private void put(Giveaway giveaway) {
+        remove(giveaway.messageId);
+        giveaways.put(giveaway.messageId, giveaway);
+        byEnd.add(giveaway);
+    }
+
+    private void remove(long messageId) {
+        Giveaway old = giveaways.remove(messageId);
+        if (old != null)
+            byEnd.remove(old);
+    }
+}
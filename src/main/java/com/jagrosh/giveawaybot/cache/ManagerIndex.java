@@ -0,0 +1,183 @@
+/*
+ * Copyright 2017 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.giveawaybot.cache;
+
+import com.jagrosh.giveawaybot.Constants;
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
+import net.dv8tion.jda.core.entities.Guild;
+import net.dv8tion.jda.core.entities.Member;
+import net.dv8tion.jda.core.entities.Role;
+import net.dv8tion.jda.core.events.guild.GuildJoinEvent;
+import net.dv8tion.jda.core.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.core.events.guild.GuildReadyEvent;
+import net.dv8tion.jda.core.events.guild.member.GuildMemberJoinEvent;
+import net.dv8tion.jda.core.events.guild.member.GuildMemberLeaveEvent;
+import net.dv8tion.jda.core.events.guild.member.GuildMemberRoleAddEvent;
+import net.dv8tion.jda.core.events.guild.member.GuildMemberRoleRemoveEvent;
+import net.dv8tion.jda.core.events.guild.update.GuildUpdateOwnerEvent;
+import net.dv8tion.jda.core.events.role.RoleDeleteEvent;
+import net.dv8tion.jda.core.events.role.update.RoleUpdateNameEvent;
+import net.dv8tion.jda.core.events.role.update.RoleUpdatePermissionsEvent;
+import net.dv8tion.jda.core.hooks.ListenerAdapter;
+
+/**
+ * Keeps track of which guilds each user can hold giveaways in, according to
+ * {@link Constants#canGiveaway(Member)}, so the dashboard doesn't have to
+ * check every guild on every shard.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class ManagerIndex extends ListenerAdapter {
+
+    private final TLongObjectMap<TLongSet> guildsByUser = new TLongObjectHashMap<>();
+    private final TLongObjectMap<TLongSet> usersByGuild = new TLongObjectHashMap<>();
+
+    /**
+     * @param userId the ID of a user
+     * @return the IDs of the guilds that the user can hold giveaways in
+     */
+    public long[] getGuildIds(long userId) {
+        synchronized (this) {
+            TLongSet guilds = guildsByUser.get(userId);
+            return guilds == null ? new long[0] : guilds.toArray();
+        }
+    }
+
+    private void update(Member member) {
+        long userId = member.getUser().getIdLong();
+        long guildId = member.getGuild().getIdLong();
+        // every member of a guild is checked on ready, so don't fill the cache with them
+        if (Constants.PERMISSIONS.check(member))
+            add(userId, guildId);
+        else
+            remove(userId, guildId);
+    }
+
+    private synchronized void add(long userId, long guildId) {
+        TLongSet guilds = guildsByUser.get(userId);
+        if (guilds == null) {
+            guilds = new TLongHashSet(4);
+            guildsByUser.put(userId, guilds);
+        }
+        guilds.add(guildId);
+        TLongSet users = usersByGuild.get(guildId);
+        if (users == null) {
+            users = new TLongHashSet(4);
+            usersByGuild.put(guildId, users);
+        }
+        users.add(userId);
+    }
+
+    private synchronized void remove(long userId, long guildId) {
+        TLongSet guilds = guildsByUser.get(userId);
+        if (guilds != null && guilds.remove(guildId) && guilds.isEmpty())
+            guildsByUser.remove(userId);
+        TLongSet users = usersByGuild.get(guildId);
+        if (users != null && users.remove(userId) && users.isEmpty())
+            usersByGuild.remove(guildId);
+    }
+
+    private synchronized long[] getUserIds(long guildId) {
+        TLongSet users = usersByGuild.get(guildId);
+        return users == null ? new long[0] : users.toArray();
+    }
+
+    private void scan(Guild guild) {
+        guild.getMembers().forEach(this::update);
+    }
+
+    private void removeGuild(long guildId) {
+        for (long userId : getUserIds(guildId))
+            remove(userId, guildId);
+    }
+
+    // rechecks everyone a role change could affect
+    private void update(Role role) {
+        Guild guild = role.getGuild();
+        if (role.isPublicRole()) {
+            scan(guild);
+            return;
+        }
+        for (long userId : getUserIds(guild.getIdLong())) {
+            Member member = guild.getMemberById(userId);
+            if (member == null)
+                remove(userId, guild.getIdLong());
+            else
+                update(member);
+        }
+        guild.getMembersWithRoles(role).forEach(this::update);
+    }
+
+    @Override
+    public void onGuildReady(GuildReadyEvent event) {
+        scan(event.getGuild());
+    }
+
+    @Override
+    public void onGuildJoin(GuildJoinEvent event) {
+        scan(event.getGuild());
+    }
+
+    @Override
+    public void onGuildLeave(GuildLeaveEvent event) {
+        removeGuild(event.getGuild().getIdLong());
+    }
+
+    @Override
+    public void onGuildMemberJoin(GuildMemberJoinEvent event) {
+        update(event.getMember());
+    }
+
+    @Override
+    public void onGuildMemberLeave(GuildMemberLeaveEvent event) {
+        remove(event.getMember().getUser().getIdLong(), event.getGuild().getIdLong());
+    }
+
+    @Override
+    public void onGuildMemberRoleAdd(GuildMemberRoleAddEvent event) {
+        update(event.getMember());
+    }
+
+    @Override
+    public void onGuildMemberRoleRemove(GuildMemberRoleRemoveEvent event) {
+        update(event.getMember());
+    }
+
+    @Override
+    public void onGuildUpdateOwner(GuildUpdateOwnerEvent event) {
+        if (event.getOldOwner() != null)
+            update(event.getOldOwner());
+        update(event.getGuild().getOwner());
+    }
+
+    @Override
+    public void onRoleUpdatePermissions(RoleUpdatePermissionsEvent event) {
+        update(event.getRole());
+    }
+
+    @Override
+    public void onRoleUpdateName(RoleUpdateNameEvent event) {
+        update(event.getRole());
+    }
+
+    @Override
+    public void onRoleDelete(RoleDeleteEvent event) {
+        update(event.getRole());
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright 2017 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.giveawaybot.cache;
+
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
+import net.dv8tion.jda.core.entities.*;
+import net.dv8tion.jda.core.events.channel.text.TextChannelCreateEvent;
+import net.dv8tion.jda.core.events.channel.text.update.TextChannelUpdateNameEvent;
+import net.dv8tion.jda.core.events.channel.voice.VoiceChannelCreateEvent;
+import net.dv8tion.jda.core.events.channel.voice.update.VoiceChannelUpdateNameEvent;
+import net.dv8tion.jda.core.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.core.events.guild.member.GuildMemberJoinEvent;
+import net.dv8tion.jda.core.events.guild.member.GuildMemberLeaveEvent;
+import net.dv8tion.jda.core.events.guild.member.GuildMemberNickChangeEvent;
+import net.dv8tion.jda.core.events.role.RoleCreateEvent;
+import net.dv8tion.jda.core.events.role.update.RoleUpdateNameEvent;
+import net.dv8tion.jda.core.events.user.UserNameUpdateEvent;
+import net.dv8tion.jda.core.hooks.ListenerAdapter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+
+/**
+ * Finds the channels, roles and members of a guild whose names start with a
+ * lowercase prefix, from a sorted set of lowercased names.
+ * <p>
+ * Each set is built the first time it's needed. Channel and role sets are
+ * thrown away when one is created or renamed. Member sets are patched
+ * instead, one name at a time, since large guilds see joins and renames all
+ * the time. Deleted channels and roles are left in until the next rebuild,
+ * and are skipped because they can no longer be looked up by ID.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class NameIndex extends ListenerAdapter {
+
+    private final TLongObjectMap<GuildNames> guilds = new TLongObjectHashMap<>();
+
+    // sets are built and searched under the guild's lock, so that one lookup builds them and the rest wait for it
+
+    public List<TextChannel> findTextChannels(Guild guild, String prefix) {
+        GuildNames names = get(guild);
+        TLongArrayList ids;
+        synchronized (names) {
+            if (names.textChannels == null)
+                names.textChannels = new Names(guild.getTextChannels(), tc -> new String[]{tc.getName()});
+            ids = names.textChannels.find(prefix);
+        }
+        return resolve(ids, guild::getTextChannelById);
+    }
+
+    public List<VoiceChannel> findVoiceChannels(Guild guild, String prefix) {
+        GuildNames names = get(guild);
+        TLongArrayList ids;
+        synchronized (names) {
+            if (names.voiceChannels == null)
+                names.voiceChannels = new Names(guild.getVoiceChannels(), vc -> new String[]{vc.getName()});
+            ids = names.voiceChannels.find(prefix);
+        }
+        return resolve(ids, guild::getVoiceChannelById);
+    }
+
+    public List<Role> findRoles(Guild guild, String prefix) {
+        GuildNames names = get(guild);
+        TLongArrayList ids;
+        synchronized (names) {
+            if (names.roles == null)
+                names.roles = new Names(guild.getRoles(), role -> new String[]{role.getName()});
+            ids = names.roles.find(prefix);
+        }
+        return resolve(ids, guild::getRoleById);
+    }
+
+    public List<Member> findMembers(Guild guild, String prefix) {
+        GuildNames names = get(guild);
+        TLongArrayList ids;
+        synchronized (names) {
+            if (names.members == null)
+                names.members = new Names(guild.getMembers(), m -> new String[]{m.getUser().getName(), m.getNickname()});
+            ids = names.members.find(prefix);
+        }
+        return resolve(ids, guild::getMemberById);
+    }
+
+    private static <T> List<T> resolve(TLongArrayList ids, LongFunction<T> resolver) {
+        List<T> found = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            T entity = resolver.apply(ids.get(i));
+            if (entity != null)
+                found.add(entity);
+        }
+        return found;
+    }
+
+    private GuildNames get(Guild guild) {
+        synchronized (guilds) {
+            GuildNames names = guilds.get(guild.getIdLong());
+            if (names == null) {
+                names = new GuildNames();
+                guilds.put(guild.getIdLong(), names);
+            }
+            return names;
+        }
+    }
+
+    private GuildNames peek(Guild guild) {
+        synchronized (guilds) {
+            return guilds.get(guild.getIdLong());
+        }
+    }
+
+    // swaps one member's names in the guild's set, if it has been built; given all of the names before and after
+    private void replaceMember(Guild guild, long userId, String[] before, String[] after) {
+        GuildNames names = peek(guild);
+        if (names == null)
+            return;
+        synchronized (names) {
+            if (names.members != null)
+                names.members.replace(userId, before, after);
+        }
+    }
+
+    @Override
+    public void onGuildLeave(GuildLeaveEvent event) {
+        synchronized (guilds) {
+            guilds.remove(event.getGuild().getIdLong());
+        }
+    }
+
+    @Override
+    public void onTextChannelCreate(TextChannelCreateEvent event) {
+        GuildNames names = peek(event.getGuild());
+        if (names != null)
+            synchronized (names) {
+                names.textChannels = null;
+            }
+    }
+
+    @Override
+    public void onTextChannelUpdateName(TextChannelUpdateNameEvent event) {
+        GuildNames names = peek(event.getGuild());
+        if (names != null)
+            synchronized (names) {
+                names.textChannels = null;
+            }
+    }
+
+    @Override
+    public void onVoiceChannelCreate(VoiceChannelCreateEvent event) {
+        GuildNames names = peek(event.getGuild());
+        if (names != null)
+            synchronized (names) {
+                names.voiceChannels = null;
+            }
+    }
+
+    @Override
+    public void onVoiceChannelUpdateName(VoiceChannelUpdateNameEvent event) {
+        GuildNames names = peek(event.getGuild());
+        if (names != null)
+            synchronized (names) {
+                names.voiceChannels = null;
+            }
+    }
+
+    @Override
+    public void onRoleCreate(RoleCreateEvent event) {
+        GuildNames names = peek(event.getGuild());
+        if (names != null)
+            synchronized (names) {
+                names.roles = null;
+            }
+    }
+
+    @Override
+    public void onRoleUpdateName(RoleUpdateNameEvent event) {
+        GuildNames names = peek(event.getGuild());
+        if (names != null)
+            synchronized (names) {
+                names.roles = null;
+            }
+    }
+
+    @Override
+    public void onGuildMemberJoin(GuildMemberJoinEvent event) {
+        Member member = event.getMember();
+        replaceMember(event.getGuild(), member.getUser().getIdLong(), new String[0], new String[]{member.getUser().getName(), member.getNickname()});
+    }
+
+    @Override
+    public void onGuildMemberLeave(GuildMemberLeaveEvent event) {
+        Member member = event.getMember();
+        replaceMember(event.getGuild(), member.getUser().getIdLong(), new String[]{member.getUser().getName(), member.getNickname()}, new String[0]);
+    }
+
+    @Override
+    public void onGuildMemberNickChange(GuildMemberNickChangeEvent event) {
+        String name = event.getMember().getUser().getName();
+        replaceMember(event.getGuild(), event.getMember().getUser().getIdLong(), new String[]{name, event.getPrevNick()}, new String[]{name, event.getNewNick()});
+    }
+
+    @Override
+    public void onUserNameUpdate(UserNameUpdateEvent event) {
+        for (Guild guild : event.getUser().getMutualGuilds()) {
+            Member member = guild.getMember(event.getUser());
+            String nickname = member == null ? null : member.getNickname();
+            replaceMember(guild, event.getUser().getIdLong(), new String[]{event.getOldName(), nickname}, new String[]{event.getUser().getName(), nickname});
+        }
+    }
+
+    // each set is only read or changed while holding the guild's lock
+    private static class GuildNames {
+
+        private Names textChannels;
+        private Names voiceChannels;
+        private Names roles;
+        private Names members;
+    }
+
+    private static class Names {
+
+        private final static Comparator<Entry> ORDER = Comparator.<Entry, String>comparing(e -> e.key).thenComparingLong(e -> e.id);
+
+        private final TreeSet<Entry> entries = new TreeSet<>(ORDER); // lowercased names, each with the entity that has it
+
+        private <T extends ISnowflake> Names(Collection<T> entities, Function<T, String[]> names) {
+            for (T entity : entities)
+                for (String name : names.apply(entity))
+                    if (name != null)
+                        entries.add(new Entry(name.toLowerCase(), entity.getIdLong()));
+        }
+
+        // takes out the names an entity no longer has, and puts in the ones it gained
+        private void replace(long id, String[] before, String[] after) {
+            Set<String> removed = lowercase(before), added = lowercase(after);
+            for (String name : removed)
+                if (!added.contains(name))
+                    entries.remove(new Entry(name, id));
+            for (String name : added)
+                if (!removed.contains(name))
+                    entries.add(new Entry(name, id));
+        }
+
+        private TLongArrayList find(String prefix) {
+            TLongArrayList found = new TLongArrayList();
+            TLongSet seen = new TLongHashSet();
+            for (Entry entry : entries.tailSet(new Entry(prefix, Long.MIN_VALUE))) {
+                if (!entry.key.startsWith(prefix))
+                    break;
+                if (seen.add(entry.id))
+                    found.add(entry.id);
+            }
+            return found;
+        }
+
+        private static Set<String> lowercase(String[] names) {
+            Set<String> set = new HashSet<>();
+            for (String name : names)
+                if (name != null)
+                    set.add(name.toLowerCase());
+            return set;
+        }
+    }
+
+    private static class Entry {
+
+        private final String key;
+        private final long id;
+
+        private Entry(String key, long id) {
+            this.key = key;
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2017 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.giveawaybot.cache;
+
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
+import net.dv8tion.jda.core.Permission;
+import net.dv8tion.jda.core.entities.Guild;
+import net.dv8tion.jda.core.entities.Member;
+import net.dv8tion.jda.core.entities.Role;
+import net.dv8tion.jda.core.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.core.events.guild.member.GuildMemberLeaveEvent;
+import net.dv8tion.jda.core.events.guild.member.GuildMemberRoleAddEvent;
+import net.dv8tion.jda.core.events.guild.member.GuildMemberRoleRemoveEvent;
+import net.dv8tion.jda.core.events.guild.update.GuildUpdateOwnerEvent;
+import net.dv8tion.jda.core.events.role.RoleCreateEvent;
+import net.dv8tion.jda.core.events.role.RoleDeleteEvent;
+import net.dv8tion.jda.core.events.role.update.RoleUpdateNameEvent;
+import net.dv8tion.jda.core.events.role.update.RoleUpdatePermissionsEvent;
+import net.dv8tion.jda.core.hooks.ListenerAdapter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caches whether members can hold giveaways, which they can with the Manage
+ * Server permission or a role called "Giveaways".
+ * <p>
+ * This must be registered before any other listener that checks permissions,
+ * so that it has already dropped stale decisions when they see an event.
+ * Each guild keeps at most {@value #MAX_DECISIONS} decisions, forgetting the
+ * one used least recently to make room. Scans of whole guilds should use
+ * {@link #check(Member)}, so they don't push out the members who are active.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class PermissionCache extends ListenerAdapter {
+
+    private static final int MAX_DECISIONS = 1000;
+
+    private final TLongObjectMap<GuildPermissions> guilds = new TLongObjectHashMap<>();
+
+    public boolean canGiveaway(Member member) {
+        GuildPermissions perms = get(member.getGuild());
+        long userId = member.getUser().getIdLong();
+        long generation;
+        synchronized (perms) {
+            Boolean decision = perms.decisions.get(userId);
+            if (decision != null)
+                return decision;
+            generation = perms.generation;
+        }
+        boolean allowed = decide(member, perms);
+        synchronized (perms) {
+            // a member invalidated while this was decided may have been decided from stale roles
+            if (perms.generation == generation)
+                perms.decisions.put(userId, allowed);
+        }
+        return allowed;
+    }
+
+    /**
+     * Decides whether a member can hold giveaways without caching the decision
+     *
+     * @param member the member
+     * @return true if they can
+     */
+    public boolean check(Member member) {
+        return decide(member, get(member.getGuild()));
+    }
+
+    private boolean decide(Member member, GuildPermissions perms) {
+        return member.hasPermission(Permission.MANAGE_SERVER) || hasGiveawayRole(member, perms);
+    }
+
+    private boolean hasGiveawayRole(Member member, GuildPermissions perms) {
+        synchronized (perms) {
+            if (perms.roles.isEmpty())
+                return false;
+            for (Role role : member.getRoles())
+                if (perms.roles.contains(role.getIdLong()))
+                    return true;
+            return false;
+        }
+    }
+
+    private GuildPermissions get(Guild guild) {
+        synchronized (guilds) {
+            GuildPermissions perms = guilds.get(guild.getIdLong());
+            if (perms == null) {
+                perms = new GuildPermissions(guild);
+                guilds.put(guild.getIdLong(), perms);
+            }
+            return perms;
+        }
+    }
+
+    private void invalidate(Guild guild) {
+        synchronized (guilds) {
+            guilds.remove(guild.getIdLong());
+        }
+    }
+
+    private void invalidate(Member member) {
+        GuildPermissions perms;
+        synchronized (guilds) {
+            perms = guilds.get(member.getGuild().getIdLong());
+        }
+        if (perms != null)
+            synchronized (perms) {
+                perms.decisions.remove(member.getUser().getIdLong());
+                perms.generation++;
+            }
+    }
+
+    @Override
+    public void onGuildLeave(GuildLeaveEvent event) {
+        invalidate(event.getGuild());
+    }
+
+    @Override
+    public void onGuildUpdateOwner(GuildUpdateOwnerEvent event) {
+        invalidate(event.getGuild());
+    }
+
+    @Override
+    public void onGuildMemberLeave(GuildMemberLeaveEvent event) {
+        invalidate(event.getMember());
+    }
+
+    @Override
+    public void onGuildMemberRoleAdd(GuildMemberRoleAddEvent event) {
+        invalidate(event.getMember());
+    }
+
+    @Override
+    public void onGuildMemberRoleRemove(GuildMemberRoleRemoveEvent event) {
+        invalidate(event.getMember());
+    }
+
+    @Override
+    public void onRoleCreate(RoleCreateEvent event) {
+        invalidate(event.getGuild());
+    }
+
+    @Override
+    public void onRoleDelete(RoleDeleteEvent event) {
+        invalidate(event.getGuild());
+    }
+
+    @Override
+    public void onRoleUpdateName(RoleUpdateNameEvent event) {
+        invalidate(event.getGuild());
+    }
+
+    @Override
+    public void onRoleUpdatePermissions(RoleUpdatePermissionsEvent event) {
+        invalidate(event.getGuild());
+    }
+
+    private static class GuildPermissions {
+
+        private final TLongSet roles = new TLongHashSet(); // roles called "Giveaways"
+        private final Map<Long, Boolean> decisions = new LinkedHashMap<Long, Boolean>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                return size() > MAX_DECISIONS;
+            }
+        }; // user -> whether they can, least recently used first
+        private long generation = 0; // bumped whenever a member's decision is dropped
+
+        private GuildPermissions(Guild guild) {
+            for (Role role : guild.getRoles())
+                if (role.getName().equalsIgnoreCase("giveaways"))
+                    roles.add(role.getIdLong());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.giveawaybot.commands;
+
+import com.jagrosh.giveawaybot.Bot;
+import com.jagrosh.giveawaybot.Constants;
+import com.jagrosh.giveawaybot.database.managers.GuildSettingsManager.GuildSettings;
+import com.jagrosh.giveawaybot.util.FinderUtil;
+import com.jagrosh.jdautilities.commandclient.Command;
+import com.jagrosh.jdautilities.commandclient.CommandEvent;
+import net.dv8tion.jda.core.entities.Role;
+
+import java.util.List;
+
+/**
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class BonusCommand extends Command {
+
+    private final static int MAX_WEIGHT = 10;
+    private final static int MAX_ROLES = 25;
+    private final Bot bot;
+
+    public BonusCommand(Bot bot) {
+        this.bot = bot;
+        name = "bonus";
+        help = "gives members of a role extra entries in giveaways; use 1 entry to remove a bonus";
+        arguments = "[role] [entries]";
+        category = Constants.GIVEAWAY;
+        guildOnly = true;
+    }
+
+    @Override
+    protected void execute(CommandEvent event) {
+        if (event.getArgs().isEmpty()) {
+            GuildSettings settings = bot.getDatabase().settings.getSettings(event.getGuild().getIdLong());
+            if (settings == null || settings.bonusRoles.length == 0) {
+                event.replySuccess("There are no bonus roles on this server.");
+                return;
+            }
+            StringBuilder builder = new StringBuilder("Bonus roles on **" + event.getGuild().getName() + "**:");
+            for (int i = 0; i < settings.bonusRoles.length; i++) {
+                Role role = event.getGuild().getRoleById(settings.bonusRoles[i]);
+                builder.append("\n`").append(settings.bonusWeights[i]).append(" entries` ")
+                        .append(role == null ? "deleted role" : "**" + role.getName() + "**");
+            }
+            event.replySuccess(builder.toString());
+            return;
+        }
+        String[] parts = event.getArgs().split("\\s+");
+        int weight;
+        try {
+            weight = Integer.parseInt(parts[parts.length - 1]);
+        } catch (NumberFormatException e) {
+            event.replyError("Please include a role and a number of entries between 1 and " + MAX_WEIGHT + "!");
+            return;
+        }
+        if (parts.length == 1 || weight < 1 || weight > MAX_WEIGHT) {
+            event.replyError("Please include a role and a number of entries between 1 and " + MAX_WEIGHT + "!");
+            return;
+        }
+        String query = event.getArgs().substring(0, event.getArgs().lastIndexOf(parts[parts.length - 1])).trim();
+        List<Role> list = FinderUtil.findRole(query, event.getGuild());
+        if (list.isEmpty()) {
+            event.replyWarning("I couldn't find any roles called '" + query + "'!");
+            return;
+        }
+        if (list.size() > 1) {
+            event.replyWarning("There are multiple roles called '" + query + "'. Please be more specific!");
+            return;
+        }
+        Role role = list.get(0);
+        GuildSettings settings = bot.getDatabase().settings.getSettings(event.getGuild().getIdLong());
+        if (weight > 1 && settings != null && settings.bonusRoles.length >= MAX_ROLES) {
+            event.replyError("A server can't have more than " + MAX_ROLES + " bonus roles!");
+            return;
+        }
+        if (!bot.setBonusRole(event.getGuild(), role, weight))
+            event.replyError("Uh oh. Something went wrong and I wasn't able to save that bonus.");
+        else if (weight == 1)
+            event.replySuccess("Members of **" + role.getName() + "** no longer get bonus entries.");
+        else
+            event.replySuccess("Members of **" + role.getName() + "** now get " + weight + " entries in giveaways!");
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2017 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.giveawaybot.commands;
+
+import com.jagrosh.giveawaybot.Bot;
+import com.jagrosh.giveawaybot.Constants;
+import com.jagrosh.giveawaybot.database.managers.GuildSettingsManager.GuildSettings;
+import com.jagrosh.jdautilities.commandclient.Command;
+import com.jagrosh.jdautilities.commandclient.CommandEvent;
+
+/**
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class CooldownCommand extends Command {
+
+    private final static int MAX_HOURS = 24 * 7;
+    private final Bot bot;
+
+    public CooldownCommand(Bot bot) {
+        this.bot = bot;
+        name = "cooldown";
+        help = "sets how many hours a winner must wait before winning another giveaway; 0 to disable";
+        arguments = "[hours]";
+        category = Constants.GIVEAWAY;
+        guildOnly = true;
+    }
+
+    @Override
+    protected void execute(CommandEvent event) {
+        if (event.getArgs().isEmpty()) {
+            GuildSettings settings = bot.getDatabase().settings.getSettings(event.getGuild().getIdLong());
+            int hours = settings == null ? 0 : settings.winCooldown;
+            event.replySuccess(hours == 0 ? "Winners on this server can win any number of giveaways."
+                    : "Winners on this server must wait " + hours + " hours before winning again.");
+            return;
+        }
+        int hours;
+        try {
+            hours = Integer.parseInt(event.getArgs().trim());
+        } catch (NumberFormatException e) {
+            event.replyError("Please include a number of hours between 0 and " + MAX_HOURS + "!");
+            return;
+        }
+        if (hours < 0 || hours > MAX_HOURS) {
+            event.replyError("Please include a number of hours between 0 and " + MAX_HOURS + "!");
+            return;
+        }
+        bot.getDatabase().settings.updateWinCooldown(event.getGuild(), hours);
+        event.replySuccess(hours == 0 ? "Winners can now win any number of giveaways."
+                : "Winners must now wait " + hours + " hours before winning another giveaway.");
+    }
+}
@@ -19,11 +19,10 @@ import com.jagrosh.giveawaybot.Bot;
 import com.jagrosh.giveawaybot.Constants;
 import com.jagrosh.giveawaybot.util.FinderUtil;
 import com.jagrosh.giveawaybot.util.FormatUtil;
+import com.jagrosh.giveawaybot.util.MessageWaiter;
 import com.jagrosh.jdautilities.commandclient.Command;
 import com.jagrosh.jdautilities.commandclient.CommandEvent;
-import com.jagrosh.jdautilities.waiter.EventWaiter;
 import net.dv8tion.jda.core.entities.TextChannel;
-import net.dv8tion.jda.core.events.message.guild.GuildMessageReceivedEvent;
 
 import java.time.Instant;
 import java.util.List;
@@ -40,9 +39,9 @@ public class CreateCommand extends Command {
     private final static String WINNERS = "\n\n`Please enter a number of winners between 1 and 15.`";
     private final static String PRIZE = "\n\n`Please enter the giveaway prize. This will also begin the giveaway.`";
     private final Bot bot;
-    private final EventWaiter waiter;
+    private final MessageWaiter waiter;
 
-    public CreateCommand(Bot bot, EventWaiter waiter) {
+    public CreateCommand(Bot bot, MessageWaiter waiter) {
         this.bot = bot;
         this.waiter = waiter;
         name = "create";
@@ -60,8 +59,7 @@ public class CreateCommand extends Command {
     }
 
     private void waitForChannel(CommandEvent event) {
-        waiter.waitForEvent(GuildMessageReceivedEvent.class,
-                e -> e.getAuthor().equals(event.getAuthor()) && e.getChannel().equals(event.getChannel()),
+        waiter.waitForMessage(event.getChannel().getIdLong(), event.getAuthor().getIdLong(),
                 e -> {
                     if (e.getMessage().getRawContent().equalsIgnoreCase("cancel")) {
                         event.replyWarning("Alright, I guess we're not having a giveaway after all..." + CANCEL);
@@ -89,8 +87,7 @@ public class CreateCommand extends Command {
     }
 
     private void waitForTime(CommandEvent event, TextChannel tchan) {
-        waiter.waitForEvent(GuildMessageReceivedEvent.class,
-                e -> e.getAuthor().equals(event.getAuthor()) && e.getChannel().equals(event.getChannel()),
+        waiter.waitForMessage(event.getChannel().getIdLong(), event.getAuthor().getIdLong(),
                 e -> {
                     if (e.getMessage().getRawContent().equalsIgnoreCase("cancel")) {
                         event.replyWarning("Alright, I guess we're not having a giveaway after all..." + CANCEL);
@@ -123,8 +120,7 @@ public class CreateCommand extends Command {
     }
 
     private void waitForWinners(CommandEvent event, TextChannel tchan, int seconds) {
-        waiter.waitForEvent(GuildMessageReceivedEvent.class,
-                e -> e.getAuthor().equals(event.getAuthor()) && e.getChannel().equals(event.getChannel()),
+        waiter.waitForMessage(event.getChannel().getIdLong(), event.getAuthor().getIdLong(),
                 e -> {
                     if (e.getMessage().getRawContent().equalsIgnoreCase("cancel")) {
                         event.replyWarning("Alright, I guess we're not having a giveaway after all..." + CANCEL);
@@ -148,8 +144,7 @@ public class CreateCommand extends Command {
     }
 
     private void waitForPrize(CommandEvent event, TextChannel tchan, int seconds, int winners) {
-        waiter.waitForEvent(GuildMessageReceivedEvent.class,
-                e -> e.getAuthor().equals(event.getAuthor()) && e.getChannel().equals(event.getChannel()),
+        waiter.waitForMessage(event.getChannel().getIdLong(), event.getAuthor().getIdLong(),
                 e -> {
                     if (e.getMessage().getRawContent().equalsIgnoreCase("cancel")) {
                         event.replyWarning("Alright, I guess we're not having a giveaway after all..." + CANCEL);
@@ -21,9 +21,6 @@ import com.jagrosh.giveawaybot.entities.Giveaway;
 import com.jagrosh.jdautilities.commandclient.Command;
 import com.jagrosh.jdautilities.commandclient.CommandEvent;
 import net.dv8tion.jda.core.Permission;
-import net.dv8tion.jda.core.entities.Message;
-
-import java.util.List;
 
 /**
  * @author John Grosh (john.a.grosh@gmail.com)
@@ -44,27 +41,21 @@ public class EndCommand extends Command {
     @Override
     protected void execute(CommandEvent event) {
         if (event.getArgs().isEmpty()) {
-            List<Giveaway> list = bot.getDatabase().giveaways.getGiveaways(event.getTextChannel());
-            Giveaway giveaway = null;
-            for (Giveaway g : list) {
-                if (giveaway == null || g.messageId > giveaway.messageId)
-                    giveaway = g;
-            }
-            if (giveaway != null) {
-                if (!bot.getDatabase().giveaways.endGiveaway(giveaway.messageId))
+            long running = bot.getDatabase().giveaways.getLatestGiveaway(event.getChannel().getIdLong());
+            if (running != 0) {
+                if (!bot.endGiveaway(event.getGuild().getIdLong(), running))
                     event.reactError();
                 return;
             }
-            event.getChannel().getHistory().retrievePast(100).queue(messages -> {
-                Message m = messages.stream().filter(msg -> msg.getAuthor().equals(event.getSelfUser()) && !msg.getEmbeds().isEmpty() && msg.getEmbeds().get(0).getColor().getRGB() != 1
-                        && msg.getReactions().stream().anyMatch(mr -> mr.getEmote().getName().equals(Constants.TADA) && mr.getCount() > 0)).findFirst().orElse(null);
-                if (m == null)
-                    event.replyWarning("I couldn't find any recent giveaways in this channel.");
-                else {
-                    Giveaway.getWinners(m, wins -> event.replySuccess("The new winner is " + wins.get(0).getAsMention() + "! Congratulations!"),
-                            () -> event.replyWarning("I couldn't determine a winner for that giveaway."));
-                }
-            }, v -> event.replyError("I failed to retrieve message history"));
+            long latest = bot.getLatestGiveaway(event.getChannel().getIdLong());
+            if (latest == 0) {
+                event.replyWarning("I couldn't find any recent giveaways in this channel.");
+                return;
+            }
+            event.getChannel().getMessageById(latest).queue(m -> {
+                Giveaway.getWinners(m, wins -> event.replySuccess("The new winner is " + wins.get(0).getAsMention() + "! Congratulations!"),
+                        () -> event.replyWarning("I couldn't determine a winner for that giveaway."));
+            }, v -> event.replyWarning("I couldn't find any recent giveaways in this channel."));
         } else if (event.getArgs().matches("\\d{17,20}")) {
             Giveaway giveaway = bot.getDatabase().giveaways.getGiveaway(Long.parseLong(event.getArgs()), event.getGuild().getIdLong());
             if (giveaway == null) {
@@ -72,7 +63,7 @@ public class EndCommand extends Command {
                     Giveaway.getWinners(m, wins -> event.replySuccess("The new winner is " + wins.get(0).getAsMention() + "! Congratulations!"),
                             () -> event.replyWarning("I couldn't determine a winner for that giveaway."));
                 }, v -> event.replyError("I failed to retrieve that message."));
-            } else if (!bot.getDatabase().giveaways.endGiveaway(giveaway.messageId))
+            } else if (!bot.endGiveaway(giveaway.guildId, giveaway.messageId))
                 event.reactError();
         } else {
             event.replyError("That is not a valid message ID! Try running without an ID to use the most recent giveaway in a channel.");
@@ -15,6 +15,7 @@
  */
 package com.jagrosh.giveawaybot.commands;
 
+import com.jagrosh.giveawaybot.Bot;
 import com.jagrosh.giveawaybot.Constants;
 import com.jagrosh.giveawaybot.entities.Giveaway;
 import com.jagrosh.jdautilities.commandclient.Command;
@@ -26,8 +27,10 @@ import net.dv8tion.jda.core.entities.Message;
  * @author John Grosh (john.a.grosh@gmail.com)
  */
 public class RerollCommand extends Command {
+    private final Bot bot;
 
-    public RerollCommand() {
+    public RerollCommand(Bot bot) {
+        this.bot = bot;
         name = "reroll";
         help = "re-rolls the specified or latest giveaway in the current channel";
         arguments = "[messageId]";
@@ -39,14 +42,12 @@ public class RerollCommand extends Command {
     @Override
     protected void execute(CommandEvent event) {
         if (event.getArgs().isEmpty()) {
-            event.getChannel().getHistory().retrievePast(100).queue(messages -> {
-                Message m = messages.stream().filter(msg -> msg.getAuthor().equals(event.getSelfUser()) && !msg.getEmbeds().isEmpty()
-                        && msg.getReactions().stream().anyMatch(mr -> mr.getEmote().getName().equals(Constants.TADA) && mr.getCount() > 0)).findFirst().orElse(null);
-                if (m == null)
-                    event.replyWarning("I couldn't find any recent giveaways in this channel.");
-                else
-                    determineWinner(m, event);
-            }, v -> event.replyError("I failed to retrieve message history"));
+            long latest = bot.getLatestGiveaway(event.getChannel().getIdLong());
+            if (latest == 0)
+                event.replyWarning("I couldn't find any recent giveaways in this channel.");
+            else
+                event.getChannel().getMessageById(latest).queue(m -> determineWinner(m, event),
+                        v -> event.replyWarning("I couldn't find any recent giveaways in this channel."));
         } else if (event.getArgs().matches("\\d{17,20}")) {
             event.getChannel().getMessageById(event.getArgs()).queue(m -> determineWinner(m, event),
                     v -> event.replyError("I couldn't find a message with that ID in this channel."));
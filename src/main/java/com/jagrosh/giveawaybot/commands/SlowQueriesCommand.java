@@ -0,0 +1,75 @@
+/*
+ * Copyright 2017 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.giveawaybot.commands;
+
+import com.jagrosh.giveawaybot.Bot;
+import com.jagrosh.giveawaybot.database.SlowQueryLog;
+import com.jagrosh.jdautilities.commandclient.Command;
+import com.jagrosh.jdautilities.commandclient.CommandEvent;
+
+/**
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class SlowQueriesCommand extends Command {
+
+    private final static int SHOWN = 10;
+    private final static int STATEMENT_MAX = 140;
+
+    private final Bot bot;
+
+    public SlowQueriesCommand(Bot bot) {
+        this.bot = bot;
+        name = "slowqueries";
+        help = "shows the costliest database statements, or sets the slow query threshold";
+        arguments = "[threshold ms]";
+        ownerCommand = true;
+        guildOnly = false;
+        category = new Category("Owner");
+    }
+
+    @Override
+    protected void execute(CommandEvent event) {
+        SlowQueryLog log = bot.getDatabase().getSlowQueries();
+        if (!event.getArgs().isEmpty()) {
+            long threshold;
+            try {
+                threshold = Long.parseLong(event.getArgs().trim());
+            } catch (NumberFormatException e) {
+                event.replyError("The threshold must be a number of milliseconds!");
+                return;
+            }
+            if (threshold < 0) {
+                event.replyError("The threshold can't be negative!");
+                return;
+            }
+            log.setThreshold(threshold);
+            event.replySuccess("Statements taking at least **" + threshold + "ms** will now be logged.");
+            return;
+        }
+        StringBuilder sb = new StringBuilder("Logging statements over **" + log.getThreshold() + "ms**. Costliest in the last hour or two:\n```\n");
+        for (SlowQueryLog.Entry entry : log.getTop(SHOWN)) {
+            String statement = entry.getStatement();
+            if (statement.length() > STATEMENT_MAX)
+                statement = statement.substring(0, STATEMENT_MAX - 3) + "...";
+            String line = String.format("%,dx %.0fms total, %.1fms max%n  %s%n", entry.getCount(), entry.getTotal() / 1e6, entry.getMax() / 1e6, statement);
+            if (sb.length() + line.length() > 1990)
+                break;
+            sb.append(line);
+        }
+        event.reply(sb.append("```").toString());
+    }
+
+}
@@ -15,8 +15,19 @@
  */
 package com.jagrosh.giveawaybot.database;
 
+import com.jagrosh.giveawaybot.metrics.Counter;
+import com.jagrosh.giveawaybot.metrics.Histogram;
+import com.jagrosh.giveawaybot.metrics.Metrics;
+import com.jagrosh.giveawaybot.metrics.QueryEvent;
+
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -28,10 +39,16 @@ public abstract class DataManager {
     private final DatabaseConnector connector;
     private final String tableName;
     private SQLColumn[] columns;
+    private final List<SQLColumn[]> indexes = new LinkedList<>();
+    private final Histogram queryTime, updateTime;
+    private final Counter failures;
 
     protected DataManager(DatabaseConnector connector, String tableName) {
         this.connector = connector;
         this.tableName = tableName;
+        this.queryTime = Metrics.histogram("giveawaybot_db_seconds", "Time spent running database statements", "table=\"" + tableName + "\",op=\"query\"");
+        this.updateTime = Metrics.histogram("giveawaybot_db_seconds", "Time spent running database statements", "table=\"" + tableName + "\",op=\"update\"");
+        this.failures = Metrics.counter("giveawaybot_db_failures_total", "Database statements that threw", "table=\"" + tableName + "\"");
         List<Field> fields = new LinkedList<>();
         for (Field field : this.getClass().getDeclaredFields()) {
             if (field.getType() == SQLColumn.class) {
@@ -54,10 +71,154 @@ public abstract class DataManager {
         return (SQLColumn[]) columns.clone();
     }
 
+    /**
+     * @return the statements that create this table's indexes, safe to run repeatedly
+     */
+    public final List<String> getIndexes() {
+        List<String> list = new LinkedList<>();
+        for (SQLColumn[] index : indexes) {
+            String name = tableName;
+            String cols = index[0].name;
+            for (int i = 0; i < index.length; i++) {
+                name += "_" + index[i].name;
+                if (i > 0)
+                    cols += ", " + index[i].name;
+            }
+            list.add("CREATE INDEX IF NOT EXISTS " + name + " ON " + tableName + "(" + cols + ")");
+        }
+        return list;
+    }
+
+    /**
+     * Declares an index on one or more columns of this table
+     *
+     * @param columns the columns to index, in order
+     */
+    protected final void index(SQLColumn... columns) {
+        indexes.add(columns);
+    }
+
     protected final Connection getConnection() {
         return connector.getConnection();
     }
 
+    protected final Connection getBatchConnection() {
+        return connector.getBatchConnection();
+    }
+
+    /**
+     * Runs a query, timing it and logging it if it's slow
+     *
+     * @param statement the statement to run it on
+     * @param sql       the query
+     * @return the results
+     * @throws SQLException
+     */
+    protected final ResultSet query(Statement statement, String sql) throws SQLException {
+        QueryEvent event = new QueryEvent();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            ResultSet results = statement.executeQuery(sql);
+            // only pay for counting rows while a recording wants them
+            return event.isEnabled() ? recorded(results, event) : results;
+        } catch (SQLException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            queryTime.record(elapsed);
+            connector.getSlowQueries().record(sql, elapsed);
+        }
+    }
+
+    /**
+     * Runs an insert, update or delete, timing it and logging it if it's slow
+     *
+     * @param statement the statement to run it on
+     * @param sql       the update
+     * @return the number of rows changed
+     * @throws SQLException
+     */
+    protected final int update(Statement statement, String sql) throws SQLException {
+        QueryEvent event = new QueryEvent();
+        event.begin();
+        long start = System.nanoTime();
+        int rows = 0;
+        try {
+            rows = statement.executeUpdate(sql);
+            return rows;
+        } catch (SQLException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            updateTime.record(elapsed);
+            connector.getSlowQueries().record(sql, elapsed);
+            commit(event, "update", rows);
+        }
+    }
+
+    /**
+     * Runs a prepared batch, timing it and logging it if it's slow
+     *
+     * @param statement the batch
+     * @param sql       the statement it was prepared from
+     * @return the number of rows changed by each statement in the batch
+     * @throws SQLException
+     */
+    protected final int[] update(PreparedStatement statement, String sql) throws SQLException {
+        QueryEvent event = new QueryEvent();
+        event.begin();
+        long start = System.nanoTime();
+        int rows = 0;
+        try {
+            int[] counts = statement.executeBatch();
+            for (int count : counts)
+                rows += Math.max(count, 0);
+            return counts;
+        } catch (SQLException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            updateTime.record(elapsed);
+            connector.getSlowQueries().record(sql, elapsed);
+            commit(event, "batch", rows);
+        }
+    }
+
+    private void commit(QueryEvent event, String operation, int rows) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.table = tableName;
+            event.operation = operation;
+            event.rows = rows;
+            event.commit();
+        }
+    }
+
+    // counts the rows read from the results, and records the query once they're closed
+    private ResultSet recorded(ResultSet results, QueryEvent event) {
+        int[] rows = {0};
+        boolean[] closed = {false};
+        return (ResultSet) Proxy.newProxyInstance(DataManager.class.getClassLoader(), new Class<?>[]{ResultSet.class}, (proxy, method, args) -> {
+            Object value;
+            try {
+                value = method.invoke(results, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (method.getName().equals("next") && (Boolean) value)
+                rows[0]++;
+            else if (method.getName().equals("close") && !closed[0]) {
+                closed[0] = true;
+                commit(event, "query", rows[0]);
+            }
+            return value;
+        });
+    }
+
     protected final String select(String where, SQLColumn... columns) {
         String selection = columns[0].name;
         for (int i = 1; i < columns.length; i++)
@@ -69,6 +230,10 @@ public abstract class DataManager {
         return select(where, "*");
     }
 
+    protected final String selectMax(String where, SQLColumn column) {
+        return select(where, "MAX(" + column.name + ")");
+    }
+
     private String select(String where, String columns) {
         return "SELECT " + columns + " FROM " + tableName + (where == null ? "" : " WHERE " + where);
     }
@@ -15,8 +15,12 @@
  */
 package com.jagrosh.giveawaybot.database;
 
+import com.jagrosh.giveawaybot.database.columns.InstantColumn;
+import com.jagrosh.giveawaybot.database.managers.BonusEntryManager;
+import com.jagrosh.giveawaybot.database.managers.ChangeManager;
 import com.jagrosh.giveawaybot.database.managers.GiveawayManager;
 import com.jagrosh.giveawaybot.database.managers.GuildSettingsManager;
+import com.jagrosh.giveawaybot.database.managers.HistoryManager;
 import net.dv8tion.jda.core.utils.SimpleLog;
 
 import java.lang.reflect.Field;
@@ -30,15 +34,25 @@ public class DatabaseConnector {
     public final static SimpleLog LOG = SimpleLog.getLog("SQL");
     public final GiveawayManager giveaways;
     public final GuildSettingsManager settings;
+    public final BonusEntryManager bonuses;
+    public final HistoryManager history;
+    public final ChangeManager changes;
     private final Connection connection;
+    private final Connection batchConnection; // only for transactions, so they never take in other writes
+    private final SlowQueryLog slowQueries;
 
     public DatabaseConnector(String host, String user, String pass) throws SQLException, ClassNotFoundException, InstantiationException, IllegalAccessException {
         Class.forName("org.h2.Driver").newInstance();
         connection = DriverManager.getConnection("jdbc:h2:" + host, user, pass);
+        batchConnection = DriverManager.getConnection("jdbc:h2:" + host, user, pass);
         LOG.info("Connected to database!");
+        slowQueries = new SlowQueryLog(connection, Long.getLong("giveawaybot.slowQueryMillis", 100));
 
         this.giveaways = new GiveawayManager(this);
         this.settings = new GuildSettingsManager(this);
+        this.bonuses = new BonusEntryManager(this);
+        this.history = new HistoryManager(this);
+        this.changes = new ChangeManager(this);
 
         try {
             for (Field field : this.getClass().getFields()) {
@@ -56,12 +70,21 @@ public class DatabaseConnector {
                     for (SQLColumn col : manager.getColumns()) {
                         if (!connection.getMetaData().getColumns(null, null, manager.getTableName(), col.name).next()) {
                             LOG.info("Creating column '" + col.name + "` in " + manager.getTableName());
-                            PreparedStatement ps = connection.prepareStatement("ALTER TABLE ?\n"
-                                    + "ADD COLUMN ?", ResultSet.TYPE_SCROLL_SENSITIVE, ResultSet.CONCUR_UPDATABLE);
-                            ps.closeOnCompletion();
-                            ps.setString(1, manager.getTableName());
-                            ps.setString(2, col.name + col.getDataDescription());
-                            ps.execute();
+                            try (Statement s = connection.createStatement()) {
+                                s.execute("ALTER TABLE " + manager.getTableName() + " ADD COLUMN " + col.name + " " + col.getDataDescription());
+                            }
+                        }
+                    }
+                    try (Statement s = connection.createStatement()) {
+                        for (String index : manager.getIndexes())
+                            s.execute(index);
+                        // older versions stored instants in seconds
+                        for (SQLColumn col : manager.getColumns()) {
+                            if (col instanceof InstantColumn) {
+                                int migrated = s.executeUpdate(((InstantColumn) col).migrateToMillis(manager.getTableName()));
+                                if (migrated > 0)
+                                    LOG.info("Converted " + migrated + " values of " + manager.getTableName() + "." + col.name + " to milliseconds");
+                            }
                         }
                     }
                 }
@@ -75,9 +98,26 @@ public class DatabaseConnector {
         return connection;
     }
 
+    /**
+     * @return a connection used only for transactions; lock it while the
+     * transaction is open
+     */
+    public final Connection getBatchConnection() {
+        return batchConnection;
+    }
+
+    /**
+     * @return the statements that have taken the longest; the threshold for logging them
+     * starts at the giveawaybot.slowQueryMillis system property, or 100ms
+     */
+    public SlowQueryLog getSlowQueries() {
+        return slowQueries;
+    }
+
     public void shutdown() {
         try {
             connection.close();
+            batchConnection.close();
         } catch (SQLException ex) {
             LOG.fatal("Failed to close connection: " + ex);
         }
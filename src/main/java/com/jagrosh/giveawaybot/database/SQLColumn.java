@@ -56,6 +56,21 @@ public abstract class SQLColumn<T> {
         return name + " < " + value;
     }
 
+    public String isGreaterThan(long value) {
+        return name + " > " + value;
+    }
+
+    public String isIn(long[] values) {
+        StringBuilder sb = new StringBuilder(name).append(" IN (");
+        for (int i = 0; i < values.length; i++)
+            sb.append(i == 0 ? "" : ", ").append(values[i]);
+        return sb.append(")").toString();
+    }
+
+    public String isNotNull() {
+        return name + " IS NOT NULL";
+    }
+
     @Override
     public String toString() {
         return name;
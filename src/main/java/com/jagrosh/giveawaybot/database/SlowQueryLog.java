@@ -0,0 +1,211 @@
+/*
+ * Copyright 2017 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.giveawaybot.database;
+
+import net.dv8tion.jda.core.utils.SimpleLog;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the cost of every statement the managers run, grouped by the
+ * statement with its literals taken out, and logs statements slower than a
+ * threshold along with H2's plan for them.
+ * <p>
+ * Each statement is logged at most once a minute, and no more than a few
+ * are logged every ten seconds. The totals cover the last one to two hours.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class SlowQueryLog {
+
+    private final static SimpleLog LOG = SimpleLog.getLog("SlowQuery");
+    private final static Pattern LITERALS = Pattern.compile("'(?:[^']|'')*'|\\b\\d+\\b");
+    private final static long WINDOW = TimeUnit.HOURS.toMillis(1);
+    private final static long LOG_EVERY = TimeUnit.MINUTES.toMillis(1); // per statement
+    private final static long BURST_WINDOW = TimeUnit.SECONDS.toMillis(10);
+    private final static int BURST_MAX = 5;
+    private final static int MAX_STATEMENTS = 1000;
+
+    private final Connection connection;
+    private volatile long threshold;
+    private volatile Map<String, Entry> current = new ConcurrentHashMap<>();
+    private volatile Map<String, Entry> previous = new ConcurrentHashMap<>();
+    private long windowStart = System.currentTimeMillis();
+    private long burstStart = 0;
+    private int burst = 0;
+
+    /**
+     * @param connection the connection to explain statements with
+     * @param threshold  the milliseconds a statement must take to be logged
+     */
+    public SlowQueryLog(Connection connection, long threshold) {
+        this.connection = connection;
+        this.threshold = TimeUnit.MILLISECONDS.toNanos(threshold);
+    }
+
+    /**
+     * @return the milliseconds a statement must take to be logged
+     */
+    public long getThreshold() {
+        return TimeUnit.NANOSECONDS.toMillis(threshold);
+    }
+
+    public void setThreshold(long millis) {
+        this.threshold = TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    /**
+     * Records that a statement ran
+     *
+     * @param sql   the statement
+     * @param nanos how long it took
+     */
+    public void record(String sql, long nanos) {
+        long now = System.currentTimeMillis();
+        rotate(now);
+        String shape = LITERALS.matcher(sql).replaceAll("?");
+        Map<String, Entry> entries = current;
+        Entry entry = entries.get(shape);
+        if (entry == null && entries.size() < MAX_STATEMENTS)
+            entry = entries.computeIfAbsent(shape, Entry::new);
+        // once there are too many statements, new ones are still logged, just not counted
+        if (entry != null)
+            entry.add(nanos);
+        if (nanos >= threshold && shouldLog(entry, now)) {
+            String plan = explain(sql);
+            if (entry != null)
+                entry.plan = plan;
+            LOG.warn(String.format("%.1fms: %s%n%s", nanos / 1e6, sql, plan));
+        }
+    }
+
+    /**
+     * @param limit the most statements to return
+     * @return the statements that took the most time in total, most first
+     */
+    public List<Entry> getTop(int limit) {
+        Map<String, Entry> merged = new HashMap<>();
+        for (Map<String, Entry> entries : Arrays.asList(previous, current))
+            for (Entry entry : entries.values())
+                merged.computeIfAbsent(entry.statement, Entry::new).merge(entry);
+        List<Entry> list = new ArrayList<>(merged.values());
+        list.sort(Comparator.comparingLong(Entry::getTotal).reversed());
+        return list.size() > limit ? list.subList(0, limit) : list;
+    }
+
+    private synchronized void rotate(long now) {
+        if (now - windowStart < WINDOW)
+            return;
+        previous = current;
+        current = new ConcurrentHashMap<>();
+        windowStart = now;
+    }
+
+    // a statement is only marked as logged if the burst limit lets it through
+    private synchronized boolean shouldLog(Entry entry, long now) {
+        if (entry != null && now - entry.lastLogged < LOG_EVERY)
+            return false;
+        if (now - burstStart >= BURST_WINDOW) {
+            burstStart = now;
+            burst = 0;
+        }
+        if (burst >= BURST_MAX)
+            return false;
+        burst++;
+        if (entry != null)
+            entry.lastLogged = now;
+        return true;
+    }
+
+    private String explain(String sql) {
+        StringBuilder sb = new StringBuilder();
+        try (Statement statement = connection.createStatement();
+             ResultSet results = statement.executeQuery("EXPLAIN " + sql)) {
+            while (results.next())
+                sb.append(results.getString(1)).append('\n');
+        } catch (SQLException e) {
+            sb.append("(no plan: ").append(e.getMessage()).append(")");
+        }
+        return sb.toString().trim();
+    }
+
+    public static class Entry {
+
+        private final String statement;
+        private long count = 0, total = 0, max = 0; // nanoseconds
+        private long lastLogged = 0; // guarded by the log
+        private volatile String plan;
+
+        private Entry(String statement) {
+            this.statement = statement;
+        }
+
+        private synchronized void add(long nanos) {
+            count++;
+            total += nanos;
+            max = Math.max(max, nanos);
+        }
+
+        private synchronized void merge(Entry other) {
+            synchronized (other) {
+                count += other.count;
+                total += other.total;
+                max = Math.max(max, other.max);
+            }
+            if (other.plan != null)
+                plan = other.plan;
+        }
+
+        /**
+         * @return the statement, with its literals replaced by ?
+         */
+        public String getStatement() {
+            return statement;
+        }
+
+        public synchronized long getCount() {
+            return count;
+        }
+
+        /**
+         * @return the total time taken, in nanoseconds
+         */
+        public synchronized long getTotal() {
+            return total;
+        }
+
+        /**
+         * @return the longest time taken, in nanoseconds
+         */
+        public synchronized long getMax() {
+            return max;
+        }
+
+        /**
+         * @return the last plan logged for the statement, or null if it hasn't been slow
+         */
+        public String getPlan() {
+            return plan;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.giveawaybot.database.columns;
+
+import com.jagrosh.giveawaybot.database.SQLColumn;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * A primary key that the database numbers, counting up from 1.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class IdentityColumn extends SQLColumn<Long> {
+
+    public IdentityColumn(String name) {
+        super(name, false, null, true);
+    }
+
+    @Override
+    public String getDataDescription() {
+        return "BIGINT AUTO_INCREMENT PRIMARY KEY";
+    }
+
+    @Override
+    public Long getValue(ResultSet results) throws SQLException {
+        return results.getLong(name);
+    }
+
+    @Override
+    public void updateValue(ResultSet results, Long newValue) throws SQLException {
+        results.updateLong(name, newValue);
+    }
+}
@@ -22,10 +22,15 @@ import java.sql.SQLException;
 import java.time.Instant;
 
 /**
+ * Stores an instant as epoch milliseconds. Older databases held epoch
+ * seconds, which {@link #migrateToMillis} converts.
+ *
  * @author John Grosh (john.a.grosh@gmail.com)
  */
 public class InstantColumn extends SQLColumn<Instant> {
 
+    private final static long SECONDS_LIMIT = 100000000000L; // 1e11 seconds is after the year 5000, 1e11 milliseconds is in 1973
+
     public InstantColumn(String name, boolean nullable, Instant defaultValue) {
         this(name, nullable, defaultValue, false);
     }
@@ -36,17 +41,38 @@ public class InstantColumn extends SQLColumn<Instant> {
 
     @Override
     public String getDataDescription() {
-        return "BIGINT" + (defaultValue == null ? "" : " DEFAULT " + defaultValue.getEpochSecond()) + (nullable ? "" : " NOT NULL") + (primaryKey ? " PRIMARY KEY" : "");
+        return "BIGINT" + (defaultValue == null ? "" : " DEFAULT " + toMillis(defaultValue)) + (nullable ? "" : " NOT NULL") + (primaryKey ? " PRIMARY KEY" : "");
     }
 
     @Override
     public Instant getValue(ResultSet results) throws SQLException {
         long val = results.getLong(name);
-        return val == 0 ? null : Instant.ofEpochSecond(val);
+        return val == 0 ? null : Instant.ofEpochMilli(val);
     }
 
     @Override
     public void updateValue(ResultSet results, Instant newValue) throws SQLException {
-        results.updateLong(name, newValue.getEpochSecond());
+        results.updateLong(name, toMillis(newValue));
+    }
+
+    /**
+     * @param table the table with this column
+     * @return an update that converts values stored as epoch seconds to epoch
+     * milliseconds, and changes nothing once they all have been
+     */
+    public String migrateToMillis(String table) {
+        return "UPDATE " + table + " SET " + name + " = " + name + " * 1000 WHERE " + name + " > 0 AND " + isLessThan(SECONDS_LIMIT);
+    }
+
+    /**
+     * @param instant an instant
+     * @return the instant in epoch milliseconds, clamped to the range of a long
+     */
+    public static long toMillis(Instant instant) {
+        try {
+            return instant.toEpochMilli();
+        } catch (ArithmeticException e) {
+            return instant.isBefore(Instant.EPOCH) ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
     }
 }
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.giveawaybot.database.managers;
+
+import com.jagrosh.giveawaybot.database.DataManager;
+import com.jagrosh.giveawaybot.database.DatabaseConnector;
+import com.jagrosh.giveawaybot.database.SQLColumn;
+import com.jagrosh.giveawaybot.database.columns.IntegerColumn;
+import com.jagrosh.giveawaybot.database.columns.LongColumn;
+import gnu.trove.map.TLongIntMap;
+import gnu.trove.map.hash.TLongIntHashMap;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Stores the entry weight of every member that holds one of their guild's
+ * bonus roles. Members without a row here have a weight of 1.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class BonusEntryManager extends DataManager {
+
+    public final static SQLColumn<Long> GUILD_ID = new LongColumn("GUILD_ID", false, 0L);
+    public final static SQLColumn<Long> USER_ID = new LongColumn("USER_ID", false, 0L);
+    public final static SQLColumn<Integer> WEIGHT = new IntegerColumn("WEIGHT", false, 1);
+
+    public BonusEntryManager(DatabaseConnector connector) {
+        super(connector, "BONUS_ENTRIES");
+        index(GUILD_ID, USER_ID);
+    }
+
+    public TLongIntMap getWeights(long guildId) {
+        TLongIntMap weights = new TLongIntHashMap();
+        try (Statement statement = getConnection().createStatement();
+             ResultSet results = query(statement, select(GUILD_ID.is(guildId), USER_ID, WEIGHT))) {
+            while (results.next())
+                weights.put(USER_ID.getValue(results), WEIGHT.getValue(results));
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return weights;
+    }
+
+    public boolean setWeight(long guildId, long userId, int weight) {
+        try (Statement statement = getConnection().createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE);
+             ResultSet results = query(statement, selectAll(GUILD_ID.is(guildId) + " AND " + USER_ID.is(userId)))) {
+            if (results.next()) {
+                if (weight <= 1)
+                    results.deleteRow();
+                else {
+                    WEIGHT.updateValue(results, weight);
+                    results.updateRow();
+                }
+            } else if (weight > 1) {
+                results.moveToInsertRow();
+                GUILD_ID.updateValue(results, guildId);
+                USER_ID.updateValue(results, userId);
+                WEIGHT.updateValue(results, weight);
+                results.insertRow();
+            }
+            return true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    public boolean setWeights(long guildId, TLongIntMap weights) {
+        try (Statement statement = getConnection().createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE);
+             ResultSet results = query(statement, selectAll(GUILD_ID.is(guildId)))) {
+            while (results.next())
+                results.deleteRow();
+            results.moveToInsertRow();
+            for (long userId : weights.keys()) {
+                int weight = weights.get(userId);
+                if (weight <= 1)
+                    continue;
+                GUILD_ID.updateValue(results, guildId);
+                USER_ID.updateValue(results, userId);
+                WEIGHT.updateValue(results, weight);
+                results.insertRow();
+            }
+            return true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+}
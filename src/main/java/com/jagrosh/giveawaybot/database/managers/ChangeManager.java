@@ -0,0 +1,153 @@
+/*
+ * Copyright 2017 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.giveawaybot.database.managers;
+
+import com.jagrosh.giveawaybot.database.DataManager;
+import com.jagrosh.giveawaybot.database.DatabaseConnector;
+import com.jagrosh.giveawaybot.database.SQLColumn;
+import com.jagrosh.giveawaybot.database.columns.IdentityColumn;
+import com.jagrosh.giveawaybot.database.columns.IntegerColumn;
+import com.jagrosh.giveawaybot.database.columns.LongColumn;
+import com.jagrosh.giveawaybot.entities.GiveawayEvent;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the giveaways the bot creates, ends and deletes, so that an
+ * updater in another process can follow them by reading the changes after
+ * the last one it saw, instead of scanning the giveaways. The updater records
+ * the giveaways it ends and deletes the same way, for the bot's dashboards.
+ * <p>
+ * Changes are numbered in the order they're written, and each process only
+ * reads the changes of the other. Each process writes its changes in order
+ * from one connection, so no change a reader follows can be numbered before
+ * one it has already read.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class ChangeManager extends DataManager {
+
+    public final static int BOT = 0;
+    public final static int UPDATER = 1;
+
+    public final static SQLColumn<Long> ID = new IdentityColumn("ID");
+    public final static SQLColumn<Integer> TYPE = new IntegerColumn("TYPE", false, 0);
+    public final static SQLColumn<Long> GUILD_ID = new LongColumn("GUILD_ID", false, 0L);
+    public final static SQLColumn<Long> MESSAGE_ID = new LongColumn("MESSAGE_ID", false, 0L);
+    public final static SQLColumn<Integer> SOURCE = new IntegerColumn("SOURCE", false, BOT);
+
+    private final static int INSERT_ATTEMPTS = 2;
+
+    public ChangeManager(DatabaseConnector connector) {
+        super(connector, "GIVEAWAY_CHANGES");
+        index(SOURCE, ID);
+    }
+
+    /**
+     * Records a change; called by a listener of the giveaway manager. If the
+     * bot's change can't be recorded, the updater only sees it when it next
+     * reloads all of the giveaways.
+     *
+     * @param source {@link #BOT} or {@link #UPDATER}, whichever is recording it
+     * @param event  the change
+     */
+    public void record(int source, GiveawayEvent event) {
+        String sql = "INSERT INTO " + getTableName() + " (" + TYPE + ", " + GUILD_ID + ", " + MESSAGE_ID + ", " + SOURCE + ") VALUES ("
+                + event.type.code + ", " + event.guildId + ", " + event.messageId + ", " + source + ")";
+        SQLException failure = null;
+        for (int attempt = 0; attempt < INSERT_ATTEMPTS; attempt++) {
+            try (Statement statement = getConnection().createStatement()) {
+                update(statement, sql);
+                return;
+            } catch (SQLException e) {
+                failure = e;
+            }
+        }
+        DatabaseConnector.LOG.fatal("Failed to record " + event.type + " of giveaway " + event.messageId + " in guild " + event.guildId + ": " + failure);
+    }
+
+    /**
+     * @param source the process that recorded the changes
+     * @return the ID of the newest change it recorded, or 0 if there are none
+     */
+    public long getLatestId(int source) {
+        try (Statement statement = getConnection().createStatement();
+             ResultSet results = query(statement, selectMax(SOURCE.is(source), ID))) {
+            if (results.next())
+                return results.getLong(1);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return 0L;
+    }
+
+    /**
+     * @param source the process that recorded the changes
+     * @param after  the ID of the last of its changes already read
+     * @param limit  the most changes to return
+     * @return its changes after that one, oldest first
+     */
+    public List<Change> getChangesAfter(int source, long after, int limit) {
+        List<Change> list = new ArrayList<>();
+        try (Statement statement = getConnection().createStatement();
+             ResultSet results = query(statement, selectAll(SOURCE.is(source) + " AND " + ID.isGreaterThan(after)) + " ORDER BY " + ID + " LIMIT " + limit)) {
+            while (results.next()) {
+                GiveawayEvent.Type type = GiveawayEvent.Type.fromCode(TYPE.getValue(results));
+                if (type == null)
+                    DatabaseConnector.LOG.warn("Unknown change type " + TYPE.getValue(results) + " in change " + ID.getValue(results));
+                list.add(new Change(ID.getValue(results), type, GUILD_ID.getValue(results), MESSAGE_ID.getValue(results)));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return list;
+    }
+
+    /**
+     * Forgets changes that have been read
+     *
+     * @param source the process that recorded the changes
+     * @param id     the ID of the last of its changes to forget
+     * @return the number of changes forgotten, or -1 on failure
+     */
+    public int deleteUpTo(int source, long id) {
+        try (Statement statement = getConnection().createStatement()) {
+            return update(statement, "DELETE FROM " + getTableName() + " WHERE " + SOURCE.is(source) + " AND " + ID.isLessThan(id + 1));
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    public static class Change {
+
+        public final long id;
+        public final GiveawayEvent.Type type; // null if it was written by a newer version
+        public final long guildId;
+        public final long messageId;
+
+        private Change(long id, GiveawayEvent.Type type, long guildId, long messageId) {
+            this.id = id;
+            this.type = type;
+            this.guildId = guildId;
+            this.messageId = messageId;
+        }
+    }
+}
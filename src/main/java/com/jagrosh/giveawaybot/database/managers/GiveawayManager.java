@@ -23,17 +23,23 @@ import com.jagrosh.giveawaybot.database.columns.IntegerColumn;
 import com.jagrosh.giveawaybot.database.columns.LongColumn;
 import com.jagrosh.giveawaybot.database.columns.StringColumn;
 import com.jagrosh.giveawaybot.entities.Giveaway;
+import com.jagrosh.giveawaybot.entities.GiveawayEvent;
 import com.jagrosh.giveawaybot.entities.Status;
 import net.dv8tion.jda.core.entities.Guild;
 import net.dv8tion.jda.core.entities.Message;
 import net.dv8tion.jda.core.entities.TextChannel;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.Instant;
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 /**
  * @author John Grosh (john.a.grosh@gmail.com)
@@ -46,17 +52,46 @@ public class GiveawayManager extends DataManager {
     public final static SQLColumn<Integer> NUM_WINNERS = new IntegerColumn("NUM_WINNERS", false, 1);
     public final static SQLColumn<String> PRIZE = new StringColumn("PRIZE", true, null, 250);
     public final static SQLColumn<Integer> STATUS = new IntegerColumn("STATUS", false, Status.RUN.ordinal());
+    public final static SQLColumn<Integer> MIN_ACCOUNT_AGE = new IntegerColumn("MIN_ACCOUNT_AGE", false, 0);
+    public final static SQLColumn<Long> REQUIRED_ROLE = new LongColumn("REQUIRED_ROLE", false, 0L);
+
+    private final List<Consumer<GiveawayEvent>> listeners = new CopyOnWriteArrayList<>();
 
     public GiveawayManager(DatabaseConnector connector) {
         super(connector, "GIVEAWAYS");
+        index(CHANNEL_ID);
+        index(GUILD_ID, END_TIME, MESSAGE_ID);
+        index(END_TIME);
+    }
+
+    /**
+     * Adds a listener that is told about every giveaway this manager creates,
+     * ends or deletes, on the thread that made the change
+     *
+     * @param listener the listener
+     */
+    public void addListener(Consumer<GiveawayEvent> listener) {
+        listeners.add(listener);
+    }
+
+    private void fire(GiveawayEvent.Type type, long guildId, long messageId, Giveaway giveaway) {
+        if (listeners.isEmpty())
+            return;
+        GiveawayEvent event = new GiveawayEvent(type, guildId, messageId, giveaway);
+        for (Consumer<GiveawayEvent> listener : listeners) {
+            try {
+                listener.accept(event);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
     }
 
     public Giveaway getGiveaway(long messageId, long guildId) {
         try (Statement statement = getConnection().createStatement();
-             ResultSet results = statement.executeQuery(selectAll(MESSAGE_ID.is(messageId)))) {
+             ResultSet results = query(statement, selectAll(MESSAGE_ID.is(messageId)))) {
             if (results.next() && GUILD_ID.getValue(results) == guildId)
-                return new Giveaway(MESSAGE_ID.getValue(results), CHANNEL_ID.getValue(results), GUILD_ID.getValue(results),
-                        END_TIME.getValue(results), NUM_WINNERS.getValue(results), PRIZE.getValue(results));
+                return giveaway(results);
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -66,10 +101,9 @@ public class GiveawayManager extends DataManager {
     public List<Giveaway> getGiveaways() {
         List<Giveaway> list = new LinkedList<>();
         try (Statement statement = getConnection().createStatement();
-             ResultSet results = statement.executeQuery(selectAll(null))) {
+             ResultSet results = query(statement, selectAll(null))) {
             while (results.next())
-                list.add(new Giveaway(MESSAGE_ID.getValue(results), CHANNEL_ID.getValue(results), GUILD_ID.getValue(results),
-                        END_TIME.getValue(results), NUM_WINNERS.getValue(results), PRIZE.getValue(results)));
+                list.add(giveaway(results));
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -79,23 +113,67 @@ public class GiveawayManager extends DataManager {
     public List<Giveaway> getGiveaways(TextChannel channel) {
         List<Giveaway> list = new LinkedList<>();
         try (Statement statement = getConnection().createStatement();
-             ResultSet results = statement.executeQuery(selectAll(CHANNEL_ID.is(channel.getIdLong())))) {
+             ResultSet results = query(statement, selectAll(CHANNEL_ID.is(channel.getIdLong())))) {
             while (results.next())
-                list.add(new Giveaway(MESSAGE_ID.getValue(results), CHANNEL_ID.getValue(results), GUILD_ID.getValue(results),
-                        END_TIME.getValue(results), NUM_WINNERS.getValue(results), PRIZE.getValue(results)));
+                list.add(giveaway(results));
         } catch (SQLException e) {
             e.printStackTrace();
         }
         return list;
     }
 
+    /**
+     * @param channelId the ID of a text channel
+     * @return the message ID of the newest running giveaway in the channel, or 0 if there are none
+     */
+    public long getLatestGiveaway(long channelId) {
+        try (Statement statement = getConnection().createStatement();
+             ResultSet results = query(statement, selectMax(CHANNEL_ID.is(channelId), MESSAGE_ID))) {
+            if (results.next())
+                return results.getLong(1);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return 0L;
+    }
+
     public List<Giveaway> getGiveaways(Guild guild) {
         List<Giveaway> list = new LinkedList<>();
         try (Statement statement = getConnection().createStatement();
-             ResultSet results = statement.executeQuery(selectAll(GUILD_ID.is(guild.getIdLong())))) {
+             ResultSet results = query(statement, selectAll(GUILD_ID.is(guild.getIdLong())))) {
+            while (results.next())
+                list.add(giveaway(results));
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return list;
+    }
+
+    /**
+     * Gets a page of a guild's giveaways, in order of end time and then message ID
+     *
+     * @param guildId      the ID of the guild
+     * @param status       only giveaways with this status, or null for any
+     * @param channelId    only giveaways in this channel, or 0 for any
+     * @param afterEnd     the end time of the last giveaway on the previous page, or null for the first page
+     * @param afterMessage the message ID of the last giveaway on the previous page
+     * @param limit        the most giveaways to return
+     * @return the page of giveaways
+     */
+    public List<Giveaway> getGiveaways(long guildId, Status status, long channelId, Instant afterEnd, long afterMessage, int limit) {
+        String where = GUILD_ID.is(guildId);
+        if (status != null)
+            where += " AND " + STATUS.is(status.ordinal());
+        if (channelId != 0)
+            where += " AND " + CHANNEL_ID.is(channelId);
+        if (afterEnd != null)
+            where += " AND (" + END_TIME.isGreaterThan(afterEnd.toEpochMilli())
+                    + " OR (" + END_TIME.is(afterEnd.toEpochMilli()) + " AND " + MESSAGE_ID.isGreaterThan(afterMessage) + "))";
+        List<Giveaway> list = new LinkedList<>();
+        try (Statement statement = getConnection().createStatement();
+             ResultSet results = query(statement, selectAll(where) + " ORDER BY " + END_TIME + ", " + MESSAGE_ID + " LIMIT " + limit)) {
             while (results.next())
-                list.add(new Giveaway(MESSAGE_ID.getValue(results), CHANNEL_ID.getValue(results), GUILD_ID.getValue(results),
-                        END_TIME.getValue(results), NUM_WINNERS.getValue(results), PRIZE.getValue(results)));
+                list.add(giveaway(results));
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -105,10 +183,9 @@ public class GiveawayManager extends DataManager {
     public List<Giveaway> getGiveaways(Status status) {
         List<Giveaway> list = new LinkedList<>();
         try (Statement statement = getConnection().createStatement();
-             ResultSet results = statement.executeQuery(selectAll(STATUS.is(status.ordinal())))) {
+             ResultSet results = query(statement, selectAll(STATUS.is(status.ordinal())))) {
             while (results.next())
-                list.add(new Giveaway(MESSAGE_ID.getValue(results), CHANNEL_ID.getValue(results), GUILD_ID.getValue(results),
-                        END_TIME.getValue(results), NUM_WINNERS.getValue(results), PRIZE.getValue(results)));
+                list.add(giveaway(results));
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -118,10 +195,9 @@ public class GiveawayManager extends DataManager {
     public List<Giveaway> getGiveawaysEndingBefore(Instant end) {
         List<Giveaway> list = new LinkedList<>();
         try (Statement statement = getConnection().createStatement();
-             ResultSet results = statement.executeQuery(selectAll(END_TIME.isLessThan(end.getEpochSecond())))) {
+             ResultSet results = query(statement, selectAll(END_TIME.isLessThan(InstantColumn.toMillis(end))))) {
             while (results.next())
-                list.add(new Giveaway(MESSAGE_ID.getValue(results), CHANNEL_ID.getValue(results), GUILD_ID.getValue(results),
-                        END_TIME.getValue(results), NUM_WINNERS.getValue(results), PRIZE.getValue(results)));
+                list.add(giveaway(results));
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -132,9 +208,17 @@ public class GiveawayManager extends DataManager {
         return createGiveaway(message.getGuild().getIdLong(), message.getTextChannel().getIdLong(), message.getIdLong(), end, winners, prize);
     }
 
+    public boolean createGiveaway(Message message, Instant end, int winners, String prize, int minAccountAge, long requiredRole) {
+        return createGiveaway(message.getGuild().getIdLong(), message.getTextChannel().getIdLong(), message.getIdLong(), end, winners, prize, minAccountAge, requiredRole);
+    }
+
     public boolean createGiveaway(long guildid, long channelid, long messageid, Instant end, int winners, String prize) {
+        return createGiveaway(guildid, channelid, messageid, end, winners, prize, 0, 0L);
+    }
+
+    public boolean createGiveaway(long guildid, long channelid, long messageid, Instant end, int winners, String prize, int minAccountAge, long requiredRole) {
         try (Statement statement = getConnection().createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE);
-             ResultSet results = statement.executeQuery(selectAll(MESSAGE_ID.is(messageid)));) {
+             ResultSet results = query(statement, selectAll(MESSAGE_ID.is(messageid)));) {
             if (results.next()) {
                 GUILD_ID.updateValue(results, guildid);
                 CHANNEL_ID.updateValue(results, channelid);
@@ -143,7 +227,11 @@ public class GiveawayManager extends DataManager {
                 NUM_WINNERS.updateValue(results, winners);
                 PRIZE.updateValue(results, prize);
                 STATUS.updateValue(results, Status.INIT.ordinal());
+                MIN_ACCOUNT_AGE.updateValue(results, minAccountAge);
+                REQUIRED_ROLE.updateValue(results, requiredRole);
                 results.updateRow();
+                fire(GiveawayEvent.Type.REFRESH, guildid, messageid,
+                        new Giveaway(messageid, channelid, guildid, end, winners, prize, minAccountAge, requiredRole));
                 return true;
             } else {
                 results.moveToInsertRow();
@@ -154,7 +242,11 @@ public class GiveawayManager extends DataManager {
                 NUM_WINNERS.updateValue(results, winners);
                 PRIZE.updateValue(results, prize);
                 STATUS.updateValue(results, Status.INIT.ordinal());
+                MIN_ACCOUNT_AGE.updateValue(results, minAccountAge);
+                REQUIRED_ROLE.updateValue(results, requiredRole);
                 results.insertRow();
+                fire(GiveawayEvent.Type.CREATE, guildid, messageid,
+                        new Giveaway(messageid, channelid, guildid, end, winners, prize, minAccountAge, requiredRole));
                 return true;
             }
         } catch (SQLException e) {
@@ -163,11 +255,122 @@ public class GiveawayManager extends DataManager {
         }
     }
 
+    /**
+     * Adds new giveaways in one transaction
+     *
+     * @param giveaways the giveaways, none of which may already exist
+     * @return true if all of them were added
+     */
+    public boolean createGiveaways(Collection<Giveaway> giveaways) {
+        Connection connection = getBatchConnection();
+        String sql = "INSERT INTO " + getTableName() + " (" + GUILD_ID + ", " + CHANNEL_ID + ", " + MESSAGE_ID + ", " + END_TIME + ", "
+                + NUM_WINNERS + ", " + PRIZE + ", " + STATUS + ", " + MIN_ACCOUNT_AGE + ", " + REQUIRED_ROLE + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        synchronized (connection) {
+            try {
+                connection.setAutoCommit(false);
+                try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                    for (Giveaway giveaway : giveaways) {
+                        statement.setLong(1, giveaway.guildId);
+                        statement.setLong(2, giveaway.channelId);
+                        statement.setLong(3, giveaway.messageId);
+                        statement.setLong(4, giveaway.end.toEpochMilli());
+                        statement.setInt(5, giveaway.winners);
+                        statement.setString(6, giveaway.prize);
+                        statement.setInt(7, Status.INIT.ordinal());
+                        statement.setInt(8, giveaway.minAccountAge);
+                        statement.setLong(9, giveaway.requiredRole);
+                        statement.addBatch();
+                    }
+                    update(statement, sql);
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+                return false;
+            }
+        }
+        giveaways.forEach(g -> fire(GiveawayEvent.Type.CREATE, g.guildId, g.messageId, g));
+        return true;
+    }
+
+    public List<Giveaway> getGiveaways(long[] messageIds) {
+        List<Giveaway> list = new LinkedList<>();
+        try (Statement statement = getConnection().createStatement();
+             ResultSet results = query(statement, selectAll(MESSAGE_ID.isIn(messageIds)))) {
+            while (results.next())
+                list.add(giveaway(results));
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return list;
+    }
+
+    public List<Giveaway> getGiveaways(long guildId, long[] messageIds) {
+        List<Giveaway> list = new LinkedList<>();
+        try (Statement statement = getConnection().createStatement();
+             ResultSet results = query(statement, selectAll(GUILD_ID.is(guildId) + " AND " + MESSAGE_ID.isIn(messageIds)))) {
+            while (results.next())
+                list.add(giveaway(results));
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return list;
+    }
+
+    /**
+     * @return the number of giveaways deleted, or -1 on failure
+     */
+    public int deleteGiveaways(long guildId, long[] messageIds) {
+        List<Giveaway> deleted = new LinkedList<>();
+        try (Statement statement = getConnection().createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE);
+             ResultSet results = query(statement, selectAll(GUILD_ID.is(guildId) + " AND " + MESSAGE_ID.isIn(messageIds)))) {
+            while (results.next()) {
+                deleted.add(giveaway(results));
+                results.deleteRow();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            if (deleted.isEmpty())
+                return -1;
+        }
+        // only the giveaways that were there; the IDs come from the caller
+        deleted.forEach(g -> fire(GiveawayEvent.Type.DELETE, g.guildId, g.messageId, g));
+        return deleted.size();
+    }
+
+    /**
+     * @return the number of giveaways ended, or -1 on failure
+     */
+    public int endGiveaways(long guildId, long[] messageIds) {
+        List<Giveaway> ended = new LinkedList<>();
+        try (Statement statement = getConnection().createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE);
+             ResultSet results = query(statement, selectAll(GUILD_ID.is(guildId) + " AND " + MESSAGE_ID.isIn(messageIds)))) {
+            while (results.next()) {
+                ended.add(giveaway(results));
+                STATUS.updateValue(results, Status.ENDNOW.ordinal());
+                results.updateRow();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            if (ended.isEmpty())
+                return -1;
+        }
+        ended.forEach(g -> fire(GiveawayEvent.Type.END, g.guildId, g.messageId, g));
+        return ended.size();
+    }
+
     public boolean deleteGiveaway(long messageId) {
         try (Statement statement = getConnection().createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE);
-             ResultSet results = statement.executeQuery(selectAll(MESSAGE_ID.is(messageId)));) {
+             ResultSet results = query(statement, selectAll(MESSAGE_ID.is(messageId)));) {
             if (results.next()) {
+                Giveaway giveaway = giveaway(results);
                 results.deleteRow();
+                fire(GiveawayEvent.Type.DELETE, giveaway.guildId, messageId, giveaway);
                 return true;
             } else
                 return true;
@@ -179,10 +382,12 @@ public class GiveawayManager extends DataManager {
 
     public boolean endGiveaway(long messageId) {
         try (Statement statement = getConnection().createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE);
-             ResultSet results = statement.executeQuery(selectAll(MESSAGE_ID.is(messageId)));) {
+             ResultSet results = query(statement, selectAll(MESSAGE_ID.is(messageId)));) {
             if (results.next()) {
+                Giveaway giveaway = giveaway(results);
                 STATUS.updateValue(results, Status.ENDNOW.ordinal());
                 results.updateRow();
+                fire(GiveawayEvent.Type.END, giveaway.guildId, messageId, giveaway);
                 return true;
             } else
                 return false;
@@ -191,4 +396,10 @@ public class GiveawayManager extends DataManager {
             return false;
         }
     }
+
+    private static Giveaway giveaway(ResultSet results) throws SQLException {
+        return new Giveaway(MESSAGE_ID.getValue(results), CHANNEL_ID.getValue(results), GUILD_ID.getValue(results),
+                END_TIME.getValue(results), NUM_WINNERS.getValue(results), PRIZE.getValue(results),
+                MIN_ACCOUNT_AGE.getValue(results), REQUIRED_ROLE.getValue(results));
+    }
 }
@@ -21,12 +21,17 @@ import com.jagrosh.giveawaybot.database.DatabaseConnector;
 import com.jagrosh.giveawaybot.database.SQLColumn;
 import com.jagrosh.giveawaybot.database.columns.IntegerColumn;
 import com.jagrosh.giveawaybot.database.columns.LongColumn;
+import com.jagrosh.giveawaybot.database.columns.StringColumn;
+import gnu.trove.list.array.TLongArrayList;
 import net.dv8tion.jda.core.entities.Guild;
+import net.dv8tion.jda.core.entities.Member;
+import net.dv8tion.jda.core.entities.Role;
 
 import java.awt.*;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Arrays;
 
 /**
  * @author John Grosh (john.a.grosh@gmail.com)
@@ -35,6 +40,8 @@ public class GuildSettingsManager extends DataManager {
 
     public final static SQLColumn<Long> GUILD_ID = new LongColumn("GUILD_ID", false, 0, true);
     public final static SQLColumn<Integer> COLOR = new IntegerColumn("COLOR", false, Constants.BLURPLE.getRGB());
+    public final static SQLColumn<String> BONUS_ROLES = new StringColumn("BONUS_ROLES", true, null, 1000);
+    public final static SQLColumn<Integer> WIN_COOLDOWN = new IntegerColumn("WIN_COOLDOWN", false, 0);
 
     public GuildSettingsManager(DatabaseConnector connector) {
         super(connector, "GUILD_SETTINGS");
@@ -43,7 +50,7 @@ public class GuildSettingsManager extends DataManager {
     public void updateColor(Guild guild) {
         int color = guild.getSelfMember().getColor() == null ? Constants.BLURPLE.getRGB() : guild.getSelfMember().getColor().getRGB();
         try (Statement statement = getConnection().createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE);
-             ResultSet results = statement.executeQuery(selectAll(GUILD_ID.is(guild.getIdLong())));) {
+             ResultSet results = query(statement, selectAll(GUILD_ID.is(guild.getIdLong())));) {
             if (results.next()) {
                 COLOR.updateValue(results, color);
                 results.updateRow();
@@ -58,11 +65,64 @@ public class GuildSettingsManager extends DataManager {
         }
     }
 
+    public GuildSettings setBonusRole(Guild guild, long roleId, int weight) {
+        try (Statement statement = getConnection().createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE);
+             ResultSet results = query(statement, selectAll(GUILD_ID.is(guild.getIdLong())));) {
+            GuildSettings settings;
+            if (results.next()) {
+                settings = new GuildSettings(COLOR.getValue(results), BONUS_ROLES.getValue(results), WIN_COOLDOWN.getValue(results)).withBonusRole(roleId, weight);
+                BONUS_ROLES.updateValue(results, settings.encodeBonusRoles());
+                results.updateRow();
+            } else {
+                settings = new GuildSettings().withBonusRole(roleId, weight);
+                results.moveToInsertRow();
+                GUILD_ID.updateValue(results, guild.getIdLong());
+                COLOR.updateValue(results, settings.color.getRGB());
+                BONUS_ROLES.updateValue(results, settings.encodeBonusRoles());
+                results.insertRow();
+            }
+            return settings;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    public void updateWinCooldown(Guild guild, int hours) {
+        try (Statement statement = getConnection().createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE);
+             ResultSet results = query(statement, selectAll(GUILD_ID.is(guild.getIdLong())));) {
+            if (results.next()) {
+                WIN_COOLDOWN.updateValue(results, hours);
+                results.updateRow();
+            } else {
+                results.moveToInsertRow();
+                GUILD_ID.updateValue(results, guild.getIdLong());
+                COLOR.updateValue(results, Constants.BLURPLE.getRGB());
+                WIN_COOLDOWN.updateValue(results, hours);
+                results.insertRow();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public long[] getBonusGuilds() {
+        TLongArrayList list = new TLongArrayList();
+        try (Statement statement = getConnection().createStatement();
+             ResultSet results = query(statement, select(BONUS_ROLES.isNotNull(), GUILD_ID));) {
+            while (results.next())
+                list.add(GUILD_ID.getValue(results));
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return list.toArray();
+    }
+
     public GuildSettings getSettings(long guildid) {
         try (Statement statement = getConnection().createStatement();
-             ResultSet results = statement.executeQuery(selectAll(GUILD_ID.is(guildid)));) {
+             ResultSet results = query(statement, selectAll(GUILD_ID.is(guildid)));) {
             if (results.next())
-                return new GuildSettings(COLOR.getValue(results));
+                return new GuildSettings(COLOR.getValue(results), BONUS_ROLES.getValue(results), WIN_COOLDOWN.getValue(results));
             else
                 return new GuildSettings();
         } catch (SQLException e) {
@@ -73,13 +133,81 @@ public class GuildSettingsManager extends DataManager {
 
     public class GuildSettings {
         public final Color color;
+        public final long[] bonusRoles;
+        public final int[] bonusWeights;
+        public final int winCooldown;
 
         private GuildSettings() {
-            this(Constants.BLURPLE.getRGB());
+            this(Constants.BLURPLE.getRGB(), null, 0);
         }
 
-        private GuildSettings(int color) {
+        private GuildSettings(int color, String bonusRoles, int winCooldown) {
             this.color = new Color(color);
+            this.winCooldown = winCooldown;
+            String[] entries = bonusRoles == null || bonusRoles.isEmpty() ? new String[0] : bonusRoles.split(",");
+            this.bonusRoles = new long[entries.length];
+            this.bonusWeights = new int[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                String[] parts = entries[i].split(":");
+                this.bonusRoles[i] = Long.parseLong(parts[0]);
+                this.bonusWeights[i] = Integer.parseInt(parts[1]);
+            }
+        }
+
+        private GuildSettings(Color color, long[] bonusRoles, int[] bonusWeights, int winCooldown) {
+            this.color = color;
+            this.bonusRoles = bonusRoles;
+            this.bonusWeights = bonusWeights;
+            this.winCooldown = winCooldown;
+        }
+
+        /**
+         * Gets the number of entries a member gets, which is the highest
+         * weight of any of their bonus roles
+         *
+         * @param member the member
+         * @return the member's entry weight, at least 1
+         */
+        public int getWeight(Member member) {
+            int weight = 1;
+            if (bonusRoles.length == 0)
+                return weight;
+            for (Role role : member.getRoles())
+                for (int i = 0; i < bonusRoles.length; i++)
+                    if (bonusRoles[i] == role.getIdLong() && bonusWeights[i] > weight)
+                        weight = bonusWeights[i];
+            return weight;
+        }
+
+        private GuildSettings withBonusRole(long roleId, int weight) {
+            int i = 0;
+            while (i < bonusRoles.length && bonusRoles[i] != roleId)
+                i++;
+            if (weight <= 1) {
+                if (i == bonusRoles.length)
+                    return this;
+                long[] roles = new long[bonusRoles.length - 1];
+                int[] weights = new int[bonusWeights.length - 1];
+                System.arraycopy(bonusRoles, 0, roles, 0, i);
+                System.arraycopy(bonusRoles, i + 1, roles, i, roles.length - i);
+                System.arraycopy(bonusWeights, 0, weights, 0, i);
+                System.arraycopy(bonusWeights, i + 1, weights, i, weights.length - i);
+                return new GuildSettings(color, roles, weights, winCooldown);
+            }
+            long[] roles = i == bonusRoles.length ? Arrays.copyOf(bonusRoles, i + 1) : bonusRoles.clone();
+            int[] weights = i == bonusWeights.length ? Arrays.copyOf(bonusWeights, i + 1) : bonusWeights.clone();
+            roles[i] = roleId;
+            weights[i] = weight;
+            return new GuildSettings(color, roles, weights, winCooldown);
+        }
+
+        private String encodeBonusRoles() {
+            if (bonusRoles.length == 0)
+                return null;
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < bonusRoles.length; i++)
+                builder.append(i == 0 ? "" : ",").append(bonusRoles[i]).append(':').append(bonusWeights[i]);
+            return builder.toString();
         }
     }
 }
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.giveawaybot.database.managers;
+
+import com.jagrosh.giveawaybot.database.DataManager;
+import com.jagrosh.giveawaybot.database.DatabaseConnector;
+import com.jagrosh.giveawaybot.database.SQLColumn;
+import com.jagrosh.giveawaybot.database.columns.InstantColumn;
+import com.jagrosh.giveawaybot.database.columns.IntegerColumn;
+import com.jagrosh.giveawaybot.database.columns.LongColumn;
+import com.jagrosh.giveawaybot.database.columns.StringColumn;
+import com.jagrosh.giveawaybot.entities.Giveaway;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+
+/**
+ * Remembers giveaways after they end, so that the newest giveaway in a
+ * channel can be found without reading the channel's message history.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class HistoryManager extends DataManager {
+
+    public final static SQLColumn<Long> GUILD_ID = new LongColumn("GUILD_ID", false, 0L);
+    public final static SQLColumn<Long> CHANNEL_ID = new LongColumn("CHANNEL_ID", false, 0L);
+    public final static SQLColumn<Long> MESSAGE_ID = new LongColumn("MESSAGE_ID", false, 0L, true);
+    public final static SQLColumn<Instant> END_TIME = new InstantColumn("END_TIME", false, Instant.MIN);
+    public final static SQLColumn<Integer> NUM_WINNERS = new IntegerColumn("NUM_WINNERS", false, 1);
+    public final static SQLColumn<String> PRIZE = new StringColumn("PRIZE", true, null, 250);
+
+    public HistoryManager(DatabaseConnector connector) {
+        super(connector, "GIVEAWAY_HISTORY");
+        index(CHANNEL_ID, MESSAGE_ID);
+        index(END_TIME);
+    }
+
+    /**
+     * @param channelId the ID of a text channel
+     * @return the message ID of the newest ended giveaway in the channel, or 0 if there are none
+     */
+    public long getLatestGiveaway(long channelId) {
+        try (Statement statement = getConnection().createStatement();
+             ResultSet results = query(statement, selectMax(CHANNEL_ID.is(channelId), MESSAGE_ID))) {
+            if (results.next())
+                return results.getLong(1);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return 0L;
+    }
+
+    public boolean addGiveaway(Giveaway giveaway, Instant ended) {
+        try (Statement statement = getConnection().createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE);
+             ResultSet results = query(statement, selectAll(MESSAGE_ID.is(giveaway.messageId)))) {
+            if (results.next()) {
+                END_TIME.updateValue(results, ended);
+                results.updateRow();
+            } else {
+                results.moveToInsertRow();
+                GUILD_ID.updateValue(results, giveaway.guildId);
+                CHANNEL_ID.updateValue(results, giveaway.channelId);
+                MESSAGE_ID.updateValue(results, giveaway.messageId);
+                END_TIME.updateValue(results, ended);
+                NUM_WINNERS.updateValue(results, giveaway.winners);
+                PRIZE.updateValue(results, giveaway.prize);
+                results.insertRow();
+            }
+            return true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Forgets giveaways that ended before a time
+     *
+     * @param end the cutoff
+     * @return the number of giveaways forgotten, or -1 on failure
+     */
+    public int deleteEndedBefore(Instant end) {
+        try (Statement statement = getConnection().createStatement()) {
+            return update(statement, "DELETE FROM " + getTableName() + " WHERE " + END_TIME.isLessThan(InstantColumn.toMillis(end)));
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.giveawaybot.entities;
+
+import com.jagrosh.giveawaybot.rest.RestJDA;
+import net.dv8tion.jda.core.exceptions.ErrorResponseException;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Decides which entrants of a giveaway may win.
+ * <p>
+ * Account age is checked in bulk on each page of entrant IDs, since it can be
+ * read from the snowflake alone. Guild membership and the required role need a
+ * REST lookup, so they are only checked for drawn winners.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class EligibilityFilter {
+
+    public static final long DISCORD_EPOCH = 1420070400000L;
+
+    private final long guildId;
+    private final long requiredRole;
+    private final long newestId;
+
+    public EligibilityFilter(Giveaway giveaway, Instant now) {
+        this.guildId = giveaway.guildId;
+        this.requiredRole = giveaway.requiredRole == giveaway.guildId ? 0L : giveaway.requiredRole;
+        if (giveaway.minAccountAge <= 0)
+            this.newestId = Long.MAX_VALUE;
+        else {
+            // the largest snowflake that was created at or before the cutoff
+            long cutoff = now.toEpochMilli() - giveaway.minAccountAge * 24L * 60 * 60 * 1000;
+            this.newestId = cutoff <= DISCORD_EPOCH ? -1L : ((cutoff - DISCORD_EPOCH + 1) << 22) - 1;
+        }
+    }
+
+    /**
+     * Drops the entrants of a page whose accounts are too young
+     *
+     * @param ids a page of entrant IDs
+     * @return the IDs that passed, which may be the given array
+     */
+    public long[] filter(long[] ids) {
+        if (newestId == Long.MAX_VALUE)
+            return ids;
+        int n = 0;
+        for (int i = 0; i < ids.length; i++) {
+            long id = ids[i];
+            ids[n] = id;
+            n += id <= newestId ? 1 : 0;
+        }
+        return n == ids.length ? ids : Arrays.copyOf(ids, n);
+    }
+
+    /**
+     * Checks that a drawn winner is still in the guild and has the required role
+     *
+     * @param restJDA the rest client
+     * @param userId  the drawn winner
+     * @param result  called with whether the winner is eligible
+     */
+    public void verify(RestJDA restJDA, long userId, Consumer<Boolean> result) {
+        restJDA.getMemberRoles(Long.toString(guildId), Long.toString(userId)).queue(roles -> {
+            if (requiredRole == 0L) {
+                result.accept(true);
+                return;
+            }
+            for (long role : roles)
+                if (role == requiredRole) {
+                    result.accept(true);
+                    return;
+                }
+            result.accept(false);
+        }, t -> {
+            if (t instanceof ErrorResponseException) {
+                switch (((ErrorResponseException) t).getErrorCode()) {
+                    case 10007: // unknown member
+                    case 10013: // unknown user
+                        result.accept(false);
+                        return;
+                }
+            }
+            // don't punish winners for our own failures
+            result.accept(true);
+        });
+    }
+}
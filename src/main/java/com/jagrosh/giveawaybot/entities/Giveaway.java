@@ -17,8 +17,12 @@ package com.jagrosh.giveawaybot.entities;
 
 import com.jagrosh.giveawaybot.Constants;
 import com.jagrosh.giveawaybot.database.DatabaseConnector;
+import com.jagrosh.giveawaybot.database.managers.GuildSettingsManager.GuildSettings;
+import com.jagrosh.giveawaybot.metrics.EndPhaseEvent;
 import com.jagrosh.giveawaybot.rest.RestJDA;
 import com.jagrosh.giveawaybot.util.FormatUtil;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.TLongIntMap;
 import net.dv8tion.jda.core.EmbedBuilder;
 import net.dv8tion.jda.core.MessageBuilder;
 import net.dv8tion.jda.core.entities.Message;
@@ -33,6 +37,7 @@ import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 /**
@@ -41,6 +46,7 @@ import java.util.function.Consumer;
 public class Giveaway {
 
     public static final SimpleLog LOG = SimpleLog.getLog("REST");
+    private static final int MAX_CHECKS = 100; // most winners to look up before giving up on filling every spot
 
     public final long messageId;
     public final long channelId;
@@ -48,23 +54,26 @@ public class Giveaway {
     public final Instant end;
     public final int winners;
     public final String prize;
+    public final int minAccountAge;
+    public final long requiredRole;
 
     public Giveaway(long messageId, long channelId, long guildId, Instant end, int winners, String prize) {
+        this(messageId, channelId, guildId, end, winners, prize, 0, 0L);
+    }
+
+    public Giveaway(long messageId, long channelId, long guildId, Instant end, int winners, String prize, int minAccountAge, long requiredRole) {
         this.messageId = messageId;
         this.channelId = channelId;
         this.guildId = guildId;
         this.end = end;
         this.winners = winners;
         this.prize = prize == null ? null : prize.isEmpty() ? null : prize;
+        this.minAccountAge = minAccountAge;
+        this.requiredRole = requiredRole;
     }
 
-    public static <T> List<T> selectWinners(List<T> list, int winners) {
-        List<T> winlist = new LinkedList<>();
-        List<T> pullist = new LinkedList<>(list);
-        for (int i = 0; i < winners && !pullist.isEmpty(); i++) {
-            winlist.add(pullist.remove((int) (Math.random() * pullist.size())));
-        }
-        return winlist;
+    public static long[] selectWinners(long[] ids, int[] weights, int winners) {
+        return new WinnerSelector(ids, weights).select(winners);
     }
 
     public static void getWinners(Message message, Consumer<List<User>> success, Runnable failure) {
@@ -110,6 +119,10 @@ public class Giveaway {
         eb.setFooter((winners == 1 ? "" : winners + " Winners | ") + "Ends at", null);
         eb.setTimestamp(end);
         eb.setDescription("React with " + Constants.TADA + " to enter!\nTime remaining: " + FormatUtil.secondsToTime(now.until(end, ChronoUnit.SECONDS)));
+        if (requiredRole != 0L && requiredRole != guildId)
+            eb.appendDescription("\nMust have the <@&" + requiredRole + "> role");
+        if (minAccountAge > 0)
+            eb.appendDescription("\nAccount must be at least " + minAccountAge + (minAccountAge == 1 ? " day" : " days") + " old");
         if (prize != null)
             eb.setAuthor(prize, null, null);
         if (close)
@@ -119,8 +132,22 @@ public class Giveaway {
     }
 
     public void update(RestJDA restJDA, DatabaseConnector connector, Instant now) {
-        restJDA.editMessage(Long.toString(channelId), Long.toString(messageId), render(connector.settings.getSettings(guildId).color, now)).queue(m -> {
-        }, t -> {
+        GuildSettings settings = connector.settings.getSettings(guildId);
+        update(restJDA, connector, render(settings == null ? null : settings.color, now), () -> {
+        });
+    }
+
+    /**
+     * Edits the giveaway's message
+     *
+     * @param restJDA   the rest client
+     * @param connector the database, to forget the giveaway if its message is gone
+     * @param message   the rendered giveaway
+     * @param done      run once the edit has succeeded or failed
+     */
+    public void update(RestJDA restJDA, DatabaseConnector connector, Message message, Runnable done) {
+        restJDA.editMessage(Long.toString(channelId), Long.toString(messageId), message).queue(m -> done.run(), t -> {
+            done.run();
             if (t instanceof ErrorResponseException) {
                 ErrorResponseException e = (ErrorResponseException) t;
                 switch (e.getErrorCode()) {
@@ -144,7 +171,21 @@ public class Giveaway {
         });
     }
 
-    public void end(RestJDA restJDA) {
+    public void end(RestJDA restJDA, DatabaseConnector connector, RecentWinners recent, Instant now) {
+        end(restJDA, connector, recent, now, () -> {
+        });
+    }
+
+    /**
+     * Picks the winners and announces them
+     *
+     * @param restJDA   the rest client
+     * @param connector the database
+     * @param recent    the recent winners, for guilds with a win cooldown
+     * @param now       the time the giveaway is ended at
+     * @param posted    run once the announcement has been sent
+     */
+    public void end(RestJDA restJDA, DatabaseConnector connector, RecentWinners recent, Instant now, Runnable posted) {
         MessageBuilder mb = new MessageBuilder();
         mb.append(Constants.YAY).append(" **GIVEAWAY ENDED** ").append(Constants.YAY);
         EmbedBuilder eb = new EmbedBuilder();
@@ -153,31 +194,92 @@ public class Giveaway {
         eb.setTimestamp(end);
         if (prize != null)
             eb.setAuthor(prize, null, null);
-        restJDA.getReactionUsers(Long.toString(channelId), Long.toString(messageId), MiscUtil.encodeUTF8(Constants.TADA)).cache(true).queue(ids -> {
-            List<Long> wins = selectWinners(ids, winners);
-            String toSend;
-            if (wins.isEmpty()) {
-                eb.setDescription("Could not determine a winner!");
-                toSend = "A winner could not be determined!";
-            } else if (wins.size() == 1) {
-                eb.setDescription("Winner: <@" + wins.get(0) + ">");
-                toSend = "Congratulations <@" + wins.get(0) + ">! You won" + (prize == null ? "" : " the **" + prize + "**") + "!";
-            } else {
-                eb.setDescription("Winners:");
-                wins.forEach(w -> eb.appendDescription("\n").appendDescription("<@" + w + ">"));
-                toSend = "Congratulations <@" + wins.get(0) + ">";
-                for (int i = 1; i < wins.size(); i++)
-                    toSend += ", <@" + wins.get(i) + ">";
-                toSend += "! You won" + (prize == null ? "" : " the **" + prize + "**") + "!";
-            }
-            mb.setEmbed(eb.build());
-            restJDA.editMessage(Long.toString(channelId), Long.toString(messageId), mb.build()).queue();
-            restJDA.sendMessage(Long.toString(channelId), toSend).queue();
+        EligibilityFilter filter = new EligibilityFilter(this, now);
+        EndPhaseEvent entrants = EndPhaseEvent.start(messageId, "entrants");
+        restJDA.getReactionUsers(Long.toString(channelId), Long.toString(messageId), MiscUtil.encodeUTF8(Constants.TADA)).queueAll(filter::filter, ids -> {
+            entrants.finish(ids.length);
+            EndPhaseEvent draw = EndPhaseEvent.start(messageId, "draw");
+            GuildSettings settings = connector.settings.getSettings(guildId);
+            RecentWinners.Claims claims = recent.claims(guildId, settings == null ? 0 : settings.winCooldown, now);
+            WinnerSelector selector = new WinnerSelector(ids, getWeights(ids, connector), claims::claim);
+            draw.finish(ids.length);
+            EndPhaseEvent verify = EndPhaseEvent.start(messageId, "verify");
+            selectEligible(selector, filter, claims, restJDA, new TLongArrayList(), 0, wins -> {
+                verify.finish(wins.length);
+                announce(restJDA, mb, eb, wins, posted);
+            });
         }, v -> {
+            entrants.finish(0);
             eb.setDescription("Could not determine a winner!");
             mb.setEmbed(eb.build());
             restJDA.editMessage(Long.toString(channelId), Long.toString(messageId), mb.build()).queue();
-            restJDA.sendMessage(Long.toString(channelId), "A winner could not be determined!").queue();
+            restJDA.sendMessage(Long.toString(channelId), "A winner could not be determined!").queue(m -> posted.run());
+        });
+    }
+
+    // draws a round of winners, checks them all at once, and redraws for any that weren't eligible
+    private void selectEligible(WinnerSelector selector, EligibilityFilter filter, RecentWinners.Claims claims, RestJDA restJDA,
+                                TLongArrayList wins, int checks, Consumer<long[]> done) {
+        long[] candidates = selector.select(Math.min(winners - wins.size(), MAX_CHECKS - checks));
+        if (candidates.length == 0) {
+            done.accept(wins.toArray());
+            return;
+        }
+        boolean[] eligible = new boolean[candidates.length];
+        AtomicInteger pending = new AtomicInteger(candidates.length);
+        for (int i = 0; i < candidates.length; i++) {
+            int index = i;
+            filter.verify(restJDA, candidates[i], ok -> {
+                eligible[index] = ok;
+                if (pending.decrementAndGet() == 0) {
+                    for (int j = 0; j < candidates.length; j++) {
+                        if (eligible[j])
+                            wins.add(candidates[j]);
+                        else
+                            claims.release(candidates[j]);
+                    }
+                    selectEligible(selector, filter, claims, restJDA, wins, checks + candidates.length, done);
+                }
+            });
+        }
+    }
+
+    private void announce(RestJDA restJDA, MessageBuilder mb, EmbedBuilder eb, long[] wins, Runnable posted) {
+        EndPhaseEvent event = EndPhaseEvent.start(messageId, "announce");
+        String toSend;
+        if (wins.length == 0) {
+            eb.setDescription("Could not determine a winner!");
+            toSend = "A winner could not be determined!";
+        } else if (wins.length == 1) {
+            eb.setDescription("Winner: <@" + wins[0] + ">");
+            toSend = "Congratulations <@" + wins[0] + ">! You won" + (prize == null ? "" : " the **" + prize + "**") + "!";
+        } else {
+            eb.setDescription("Winners:");
+            for (long w : wins)
+                eb.appendDescription("\n").appendDescription("<@" + w + ">");
+            toSend = "Congratulations <@" + wins[0] + ">";
+            for (int i = 1; i < wins.length; i++)
+                toSend += ", <@" + wins[i] + ">";
+            toSend += "! You won" + (prize == null ? "" : " the **" + prize + "**") + "!";
+        }
+        mb.setEmbed(eb.build());
+        restJDA.editMessage(Long.toString(channelId), Long.toString(messageId), mb.build()).queue();
+        restJDA.sendMessage(Long.toString(channelId), toSend).queue(m -> {
+            event.finish(wins.length);
+            posted.run();
         });
     }
+
+    // returns null when nobody in the guild has bonus entries, so the draw stays unweighted
+    private int[] getWeights(long[] ids, DatabaseConnector connector) {
+        TLongIntMap bonus = connector.bonuses.getWeights(guildId);
+        if (bonus.isEmpty())
+            return null;
+        int[] weights = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            int weight = bonus.get(ids[i]);
+            weights[i] = weight < 1 ? 1 : weight;
+        }
+        return weights;
+    }
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2017 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.giveawaybot.entities;
+
+/**
+ * A change to a stored giveaway.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class GiveawayEvent {
+
+    public enum Type {
+        // the codes are stored, so they must never change
+        CREATE(0), REFRESH(1), END(2), DELETE(3);
+
+        public final int code;
+
+        Type(int code) {
+            this.code = code;
+        }
+
+        /**
+         * @param code a stored code
+         * @return the type with the code, or null if there isn't one
+         */
+        public static Type fromCode(int code) {
+            for (Type type : values())
+                if (type.code == code)
+                    return type;
+            return null;
+        }
+    }
+
+    public final Type type;
+    public final long guildId;
+    public final long messageId;
+    public final Giveaway giveaway; // the giveaway as stored, or null when it wasn't read
+
+    public GiveawayEvent(Type type, long guildId, long messageId, Giveaway giveaway) {
+        this.type = type;
+        this.guildId = guildId;
+        this.messageId = messageId;
+        this.giveaway = giveaway;
+    }
+}
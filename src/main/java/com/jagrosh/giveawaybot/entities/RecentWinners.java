@@ -0,0 +1,171 @@
+/*
+ * Copyright 2017 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.giveawaybot.entities;
+
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.TLongLongMap;
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongLongHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+
+/**
+ * Remembers who has recently won a giveaway in each guild, so that guilds with
+ * a win cooldown can skip those users when drawing.
+ * <p>
+ * Each guild keeps a map of user to their last win, and the users are also
+ * filed into hourly buckets. Expired buckets are evicted whole, so a lookup
+ * is a single hash probe no matter how many giveaways end together.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class RecentWinners {
+
+    private static final long BUCKET_MILLIS = 60 * 60 * 1000L;
+    private static final Claims UNLIMITED = new Claims(null, 0L, 0L);
+
+    private final TLongObjectMap<GuildWinners> guilds = new TLongObjectHashMap<>();
+
+    /**
+     * Starts claiming winners for a giveaway
+     *
+     * @param guildId       the guild of the giveaway
+     * @param cooldownHours how long a winner must wait to win again, or 0 for no limit
+     * @param now           the current time
+     * @return the claims for this draw
+     */
+    public Claims claims(long guildId, int cooldownHours, Instant now) {
+        if (cooldownHours <= 0)
+            return UNLIMITED;
+        GuildWinners winners;
+        synchronized (guilds) {
+            winners = guilds.get(guildId);
+            if (winners == null) {
+                winners = new GuildWinners();
+                guilds.put(guildId, winners);
+            }
+        }
+        return new Claims(winners, now.toEpochMilli(), cooldownHours * BUCKET_MILLIS);
+    }
+
+    /**
+     * Evicts expired winners from every guild, and forgets guilds with none left
+     *
+     * @param now the current time
+     */
+    public void sweep(Instant now) {
+        long time = now.toEpochMilli();
+        synchronized (guilds) {
+            guilds.retainEntries((guildId, winners) -> {
+                synchronized (winners) {
+                    winners.evict(time - winners.ttl);
+                    return !winners.wonAt.isEmpty();
+                }
+            });
+        }
+    }
+
+    public static class Claims {
+
+        private final GuildWinners winners;
+        private final long now;
+        private final long ttl;
+
+        private Claims(GuildWinners winners, long now, long ttl) {
+            this.winners = winners;
+            this.now = now;
+            this.ttl = ttl;
+        }
+
+        /**
+         * Records a drawn user as a winner, unless they have won too recently
+         *
+         * @param userId the drawn user
+         * @return true if the user may win
+         */
+        public boolean claim(long userId) {
+            if (winners == null)
+                return true;
+            synchronized (winners) {
+                winners.ttl = ttl;
+                winners.evict(now - ttl);
+                if (winners.wonAt.get(userId) > now - ttl)
+                    return false;
+                winners.add(userId, now);
+                return true;
+            }
+        }
+
+        /**
+         * Forgets a claimed user, when they turn out not to be eligible
+         *
+         * @param userId the claimed user
+         */
+        public void release(long userId) {
+            if (winners == null)
+                return;
+            synchronized (winners) {
+                if (winners.wonAt.get(userId) == now)
+                    winners.wonAt.remove(userId);
+            }
+        }
+    }
+
+    private static class GuildWinners {
+
+        private final TLongLongMap wonAt = new TLongLongHashMap(); // user -> time of last win, 0 when absent
+        private final ArrayDeque<Bucket> buckets = new ArrayDeque<>(); // oldest first
+        private long ttl;
+
+        private void add(long userId, long time) {
+            wonAt.put(userId, time);
+            long hour = time / BUCKET_MILLIS;
+            Bucket bucket = buckets.peekLast();
+            if (bucket == null || bucket.hour < hour) {
+                bucket = new Bucket(hour);
+                buckets.addLast(bucket);
+            }
+            // draws may finish slightly out of order; an earlier win only makes eviction later
+            bucket.users.add(userId);
+        }
+
+        private void evict(long cutoff) {
+            while (!buckets.isEmpty() && (buckets.peekFirst().hour + 1) * BUCKET_MILLIS <= cutoff) {
+                Bucket bucket = buckets.pollFirst();
+                long bucketEnd = (bucket.hour + 1) * BUCKET_MILLIS;
+                for (int i = 0; i < bucket.users.size(); i++) {
+                    long userId = bucket.users.get(i);
+                    long time = wonAt.get(userId);
+                    // only remove users that haven't won again since
+                    if (time != 0 && time < bucketEnd)
+                        wonAt.remove(userId);
+                }
+            }
+        }
+    }
+
+    private static class Bucket {
+
+        private final long hour;
+        private final TLongArrayList users = new TLongArrayList();
+
+        private Bucket(long hour) {
+            this.hour = hour;
+        }
+    }
+}
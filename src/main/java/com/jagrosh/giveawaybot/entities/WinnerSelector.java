@@ -0,0 +1,173 @@
+/*
+ * Copyright 2017 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.giveawaybot.entities;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongPredicate;
+
+/**
+ * Draws distinct winners from a set of entrant IDs, optionally weighted.
+ * <p>
+ * Unweighted draws are a partial Fisher-Yates shuffle. Weighted draws use
+ * Walker's alias method; already-drawn entrants are rejected and the table is
+ * rebuilt over the remaining entrants once half of its weight has been drawn,
+ * so each draw is expected O(1).
+ * <p>
+ * Every drawn entrant is first offered to the filter, which may turn them
+ * down; turned down entrants are never drawn again.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class WinnerSelector {
+
+    private final long[] ids;
+    private final int[] weights;
+    private final LongPredicate filter;
+    private int remaining;
+
+    // alias table, only used for weighted draws
+    private boolean[] taken;
+    private int[] index;
+    private double[] prob;
+    private int[] alias;
+    private long tableWeight;
+    private long takenWeight;
+
+    /**
+     * @param ids     the entrants; this array is not modified
+     * @param weights the entry weight of each entrant, or null if all entrants are equal
+     */
+    public WinnerSelector(long[] ids, int[] weights) {
+        this(ids, weights, id -> true);
+    }
+
+    /**
+     * @param ids     the entrants; this array is not modified
+     * @param weights the entry weight of each entrant, or null if all entrants are equal
+     * @param filter  called once for each drawn entrant, returning false to skip them
+     */
+    public WinnerSelector(long[] ids, int[] weights, LongPredicate filter) {
+        this.filter = filter;
+        this.remaining = ids.length;
+        if (weights == null) {
+            this.ids = Arrays.copyOf(ids, ids.length);
+            this.weights = null;
+        } else {
+            this.ids = ids;
+            this.weights = weights;
+            this.taken = new boolean[ids.length];
+            build();
+        }
+    }
+
+    public int remaining() {
+        return remaining;
+    }
+
+    /**
+     * Draws the next winner
+     *
+     * @return the ID of the winner, or -1 if there are no entrants left
+     */
+    public long next() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (weights == null) {
+            while (remaining > 0) {
+                int i = random.nextInt(remaining);
+                long id = ids[i];
+                ids[i] = ids[--remaining];
+                if (filter.test(id))
+                    return id;
+            }
+            return -1L;
+        }
+        while (remaining > 0) {
+            if (takenWeight * 2 > tableWeight)
+                build();
+            int slot = random.nextInt(index.length);
+            int pos = index[random.nextDouble() < prob[slot] ? slot : alias[slot]];
+            if (taken[pos])
+                continue;
+            taken[pos] = true;
+            takenWeight += weight(pos);
+            remaining--;
+            if (filter.test(ids[pos]))
+                return ids[pos];
+        }
+        return -1L;
+    }
+
+    /**
+     * Draws up to the given number of winners
+     *
+     * @param count the maximum number of winners
+     * @return the IDs of the winners, in the order they were drawn
+     */
+    public long[] select(int count) {
+        long[] winners = new long[Math.min(count, remaining)];
+        for (int i = 0; i < winners.length; i++) {
+            winners[i] = next();
+            if (winners[i] == -1L)
+                return Arrays.copyOf(winners, i);
+        }
+        return winners;
+    }
+
+    private int weight(int pos) {
+        return weights[pos] < 1 ? 1 : weights[pos];
+    }
+
+    // Vose's variant of the alias method, over entrants that haven't been drawn
+    private void build() {
+        int n = remaining;
+        index = new int[n];
+        tableWeight = 0;
+        takenWeight = 0;
+        for (int i = 0, j = 0; i < ids.length; i++) {
+            if (!taken[i]) {
+                index[j++] = i;
+                tableWeight += weight(i);
+            }
+        }
+        prob = new double[n];
+        alias = new int[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int s = 0, l = 0;
+        for (int i = 0; i < n; i++) {
+            prob[i] = (double) weight(index[i]) * n / tableWeight;
+            if (prob[i] < 1.0)
+                small[s++] = i;
+            else
+                large[l++] = i;
+        }
+        while (s > 0 && l > 0) {
+            int less = small[--s];
+            int more = large[--l];
+            alias[less] = more;
+            prob[more] = (prob[more] + prob[less]) - 1.0;
+            if (prob[more] < 1.0)
+                small[s++] = more;
+            else
+                large[l++] = more;
+        }
+        while (l > 0)
+            prob[large[--l]] = 1.0;
+        while (s > 0)
+            prob[small[--s]] = 1.0;
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2017 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.giveawaybot.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * A command being run, from when it was matched until it returned.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+@Name("giveawaybot.Command")
+@Label("Command")
+@Category({"GiveawayBot", "Commands"})
+@Description("A command being run, from when it was matched until it returned")
+public class CommandExecutionEvent extends Event {
+
+    @Label("Command")
+    public String command;
+
+    @Label("Guild")
+    public long guildId;
+
+    @Label("User")
+    public long userId;
+
+    @Label("Completed")
+    @Description("False if a check stopped the command")
+    public boolean completed;
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2017 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.giveawaybot.metrics;
+
+import com.jagrosh.jdautilities.commandclient.Command;
+import com.jagrosh.jdautilities.commandclient.CommandEvent;
+import com.jagrosh.jdautilities.commandclient.CommandListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records each command as a {@link CommandExecutionEvent}, and does nothing
+ * while no recording is taking them.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class CommandProfiler implements CommandListener {
+
+    private final Map<CommandEvent, CommandExecutionEvent> running = new ConcurrentHashMap<>();
+
+    @Override
+    public void onCommand(CommandEvent event, Command command) {
+        CommandExecutionEvent recorded = new CommandExecutionEvent();
+        if (!recorded.isEnabled())
+            return;
+        recorded.begin();
+        running.put(event, recorded);
+    }
+
+    @Override
+    public void onCompletedCommand(CommandEvent event, Command command) {
+        finish(event, command, true);
+    }
+
+    @Override
+    public void onTerminatedCommand(CommandEvent event, Command command) {
+        finish(event, command, false);
+    }
+
+    private void finish(CommandEvent event, Command command, boolean completed) {
+        CommandExecutionEvent recorded = running.remove(event);
+        if (recorded == null)
+            return;
+        recorded.end();
+        if (recorded.shouldCommit()) {
+            recorded.command = command.getName();
+            recorded.guildId = event.getGuild() == null ? 0L : event.getGuild().getIdLong();
+            recorded.userId = event.getAuthor().getIdLong();
+            recorded.completed = completed;
+            recorded.commit();
+        }
+    }
+}
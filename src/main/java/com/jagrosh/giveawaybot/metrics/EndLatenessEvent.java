@@ -0,0 +1,40 @@
+/*
+ * Copyright 2017 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.giveawaybot.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * A giveaway's winners were announced, for flight recordings.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+@Name("giveawaybot.EndLateness")
+@Label("Giveaway End Lateness")
+@Category({"GiveawayBot", "Updater"})
+@Description("How long after its end time a giveaway's winners were announced")
+public class EndLatenessEvent extends Event {
+
+    @Label("Guild")
+    public long guildId;
+
+    @Label("Message")
+    public long messageId;
+
+    @Label("Lateness")
+    @Timespan(Timespan.MILLISECONDS)
+    public long lateness;
+}
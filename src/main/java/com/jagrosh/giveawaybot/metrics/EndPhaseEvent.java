@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.giveawaybot.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * One phase of ending a giveaway. The phases run on the rest client's
+ * threads, one after another, so a slow end shows up as a long phase.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+@Name("giveawaybot.EndPhase")
+@Label("Giveaway End Phase")
+@Category({"GiveawayBot", "Updater"})
+@Description("One phase of ending a giveaway: entrants, draw, verify or announce")
+public class EndPhaseEvent extends Event {
+
+    @Label("Message")
+    public long messageId;
+
+    @Label("Phase")
+    public String phase;
+
+    @Label("Count")
+    @Description("Entrants read, winners drawn, winners verified, or winners announced")
+    public int count;
+
+    /**
+     * @param messageId the giveaway
+     * @param phase     the name of the phase
+     * @return a started event
+     */
+    public static EndPhaseEvent start(long messageId, String phase) {
+        EndPhaseEvent event = new EndPhaseEvent();
+        event.begin();
+        event.messageId = messageId;
+        event.phase = phase;
+        return event;
+    }
+
+    public void finish(int count) {
+        end();
+        if (shouldCommit()) {
+            this.count = count;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2017 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.giveawaybot.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Holds every counter and histogram in the process, and writes them in the
+ * Prometheus text format.
+ * <p>
+ * Looking a metric up takes a map lookup or two, so anything recorded often
+ * should keep the metric in a field.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class Metrics {
+
+    private final static Map<String, Family> FAMILIES = new ConcurrentSkipListMap<>();
+
+    /**
+     * @param name   the name of the metric
+     * @param help   a description of the metric
+     * @param labels the labels of this series, like {@code table="GIVEAWAYS"}, or an empty string
+     * @return the counter
+     */
+    public static Counter counter(String name, String help, String labels) {
+        return (Counter) family(name, help, "counter").series.computeIfAbsent(labels, l -> new Counter());
+    }
+
+    /**
+     * @param name   the name of the metric, which should end in _seconds
+     * @param help   a description of the metric
+     * @param labels the labels of this series, like {@code table="GIVEAWAYS"}, or an empty string
+     * @return the histogram
+     */
+    public static Histogram histogram(String name, String help, String labels) {
+        return (Histogram) family(name, help, "histogram").series.computeIfAbsent(labels, l -> new Histogram());
+    }
+
+    private static Family family(String name, String help, String type) {
+        Family family = FAMILIES.computeIfAbsent(name, n -> new Family(help, type));
+        if (!family.type.equals(type))
+            throw new IllegalArgumentException(name + " is a " + family.type + ", not a " + type);
+        return family;
+    }
+
+    /**
+     * @return every metric, in the Prometheus text format
+     */
+    public static String render() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Family> entry : FAMILIES.entrySet()) {
+            String name = entry.getKey();
+            Family family = entry.getValue();
+            sb.append("# HELP ").append(name).append(' ').append(family.help).append('\n');
+            sb.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+            for (Map.Entry<String, Object> series : family.series.entrySet()) {
+                String labels = series.getKey();
+                if (series.getValue() instanceof Counter) {
+                    sb.append(name).append(braces(labels)).append(' ').append(((Counter) series.getValue()).get()).append('\n');
+                    continue;
+                }
+                Histogram histogram = (Histogram) series.getValue();
+                String prefix = labels.isEmpty() ? "" : labels + ",";
+                long cumulative = 0;
+                for (int i = 0; i < Histogram.BUCKETS - 1; i++) {
+                    cumulative += histogram.getBucket(i);
+                    sb.append(name).append("_bucket{").append(prefix).append("le=\"").append((1L << i) / 1e6).append("\"} ").append(cumulative).append('\n');
+                }
+                cumulative += histogram.getBucket(Histogram.BUCKETS - 1);
+                sb.append(name).append("_bucket{").append(prefix).append("le=\"+Inf\"} ").append(cumulative).append('\n');
+                sb.append(name).append("_sum").append(braces(labels)).append(' ').append(histogram.getSum() / 1e9).append('\n');
+                sb.append(name).append("_count").append(braces(labels)).append(' ').append(histogram.getCount()).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String braces(String labels) {
+        return labels.isEmpty() ? "" : "{" + labels + "}";
+    }
+
+    private static class Family {
+
+        private final String help;
+        private final String type;
+        private final Map<String, Object> series = new ConcurrentHashMap<>();
+
+        private Family(String help, String type) {
+            this.help = help;
+            this.type = type;
+        }
+    }
+}
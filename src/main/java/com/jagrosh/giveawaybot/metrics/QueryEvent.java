@@ -0,0 +1,40 @@
+/*
+ * Copyright 2017 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.giveawaybot.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * A database statement, from running it until its results are closed.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+@Name("giveawaybot.Query")
+@Label("Database Query")
+@Category({"GiveawayBot", "Database"})
+@Description("A database statement, from running it until its results are closed")
+public class QueryEvent extends Event {
+
+    @Label("Table")
+    public String table;
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Rows")
+    @Description("Rows read, or rows changed by an update")
+    public int rows;
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2017 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.giveawaybot.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * One HTTP request to Discord, including any that JDA retries after a 429.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+@Name("giveawaybot.Rest")
+@Label("Discord Request")
+@Category({"GiveawayBot", "REST"})
+@Description("One HTTP request to Discord; requests retried after a 429 are recorded again")
+public class RestEvent extends Event {
+
+    @Label("Route")
+    @Description("The method and path, with IDs after the first left out")
+    public String route;
+
+    @Label("Status")
+    public int status;
+
+    @Label("Rate Limit Remaining")
+    @Description("Requests left in the route's bucket, or -1 if not sent")
+    public int remaining;
+
+    @Label("Rate Limit Wait")
+    @Description("How long Discord asked us to wait before retrying")
+    @Timespan(Timespan.MILLISECONDS)
+    public long retryAfter;
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2017 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.giveawaybot.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * One iteration of the updater loop, for flight recordings.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+@Name("giveawaybot.UpdaterTick")
+@Label("Updater Tick")
+@Category({"GiveawayBot", "Updater"})
+@Description("One iteration of the update loop, split by where it spent its time")
+public class TickEvent extends Event {
+
+    @Label("Tick")
+    public long tick;
+
+    @Label("Query Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long queryTime;
+
+    @Label("Render Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long renderTime;
+
+    @Label("Enqueue Time")
+    @Description("Time spent handing edits and endings to the rest client")
+    @Timespan(Timespan.NANOSECONDS)
+    public long enqueueTime;
+
+    @Label("Ended")
+    public int ended;
+
+    @Label("Refreshed")
+    public int refreshed;
+
+    @Label("Skipped")
+    @Description("Refreshes dropped because the tick ran out of time")
+    public int skipped;
+
+    @Label("Coalesced")
+    @Description("Refreshes dropped because the previous edit of the message was still pending")
+    public int coalesced;
+
+    @Label("Overran")
+    public boolean overran;
+}
@@ -21,11 +21,14 @@ import net.dv8tion.jda.core.requests.Request;
 import net.dv8tion.jda.core.requests.Response;
 import net.dv8tion.jda.core.requests.Route;
 import net.dv8tion.jda.core.requests.restaction.pagination.PaginationAction;
+import gnu.trove.list.array.TLongArrayList;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 
 /**
  * {@link net.dv8tion.jda.core.requests.restaction.pagination.PaginationAction PaginationAction}
@@ -43,6 +46,8 @@ import java.util.List;
  */
 public class EditedReactionPaginationAction extends PaginationAction<Long, EditedReactionPaginationAction> {
 
+    private volatile int lastPageSize = 0;
+
     /**
      * Creates a new PaginationAction instance
      *
@@ -79,8 +84,13 @@ public class EditedReactionPaginationAction extends PaginationAction<Long, Edite
             request.onFailure(response);
             return;
         }
-        final JSONArray array = response.getArray();
+        request.onSuccess(parse(response.getArray()));
+    }
+
+    // reads the non-bot users out of a page, remembering where the page ended
+    List<Long> parse(JSONArray array) {
         final List<Long> users = new LinkedList<>();
+        lastPageSize = array.length();
         for (int i = 0; i < array.length(); i++) {
             JSONObject user = array.getJSONObject(i);
             long id = user.getLong("id");
@@ -91,8 +101,31 @@ public class EditedReactionPaginationAction extends PaginationAction<Long, Edite
             if (useCache)
                 cached.add(id);
         }
+        return users;
+    }
 
-        request.onSuccess(users);
+    /**
+     * Retrieves every page, starting after the last retrieved user
+     *
+     * @param filter  applied to the IDs of each page before they are kept
+     * @param success called with the IDs of all non-bot users that passed the filter
+     * @param failure called if any page fails
+     */
+    public void queueAll(UnaryOperator<long[]> filter, Consumer<long[]> success, Consumer<Throwable> failure) {
+        queueAll(new TLongArrayList(), filter, success, failure);
     }
 
+    private void queueAll(TLongArrayList ids, UnaryOperator<long[]> filter, Consumer<long[]> success, Consumer<Throwable> failure) {
+        queue(page -> {
+            long[] chunk = new long[page.size()];
+            int i = 0;
+            for (long id : page)
+                chunk[i++] = id;
+            ids.add(filter.apply(chunk));
+            if (lastPageSize < getLimit())
+                success.accept(ids.toArray());
+            else
+                queueAll(ids, filter, success, failure);
+        }, failure);
+    }
 }
@@ -15,33 +15,87 @@
  */
 package com.jagrosh.giveawaybot.rest;
 
+import com.jagrosh.giveawaybot.metrics.Counter;
+import com.jagrosh.giveawaybot.metrics.Histogram;
+import com.jagrosh.giveawaybot.metrics.Metrics;
+import com.jagrosh.giveawaybot.metrics.RestEvent;
 import net.dv8tion.jda.core.AccountType;
 import net.dv8tion.jda.core.MessageBuilder;
 import net.dv8tion.jda.core.entities.Message;
 import net.dv8tion.jda.core.entities.MessageEmbed;
 import net.dv8tion.jda.core.entities.impl.JDAImpl;
 import net.dv8tion.jda.core.entities.impl.MessageImpl;
+import net.dv8tion.jda.core.requests.Method;
 import net.dv8tion.jda.core.requests.Request;
 import net.dv8tion.jda.core.requests.Response;
 import net.dv8tion.jda.core.requests.RestAction;
 import net.dv8tion.jda.core.requests.Route;
 import net.dv8tion.jda.core.utils.Checks;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
 import okhttp3.OkHttpClient;
+import org.json.JSONArray;
 import org.json.JSONObject;
 
 import javax.annotation.CheckReturnValue;
+import java.io.IOException;
 
 /**
  * @author John Grosh (john.a.grosh@gmail.com)
  */
 public class RestJDA {
 
-    private final JDAImpl fakeJDA = new JDAImpl(AccountType.BOT, new OkHttpClient.Builder(), null, false, false, false, false, 2, 900);
+    private final static Route GET_MEMBER = Route.custom(Method.GET, "guilds/{guild_id}/members/{user_id}");
+    private final static Histogram LATENCY = Metrics.histogram("giveawaybot_rest_seconds", "Time taken by Discord REST requests", "");
+    private final static Counter RATE_LIMITED = Metrics.counter("giveawaybot_rest_responses_total", "Discord REST responses by status", "status=\"429\"");
+    private final static Counter[] RESPONSES = new Counter[6]; // by the first digit of the status
+    private final static Counter FAILED = Metrics.counter("giveawaybot_rest_failures_total", "Discord REST requests that got no response", "");
+    private final JDAImpl fakeJDA;
+
+    static {
+        for (int i = 1; i < RESPONSES.length; i++)
+            RESPONSES[i] = Metrics.counter("giveawaybot_rest_responses_total", "Discord REST responses by status", "status=\"" + i + "xx\"");
+    }
 
     public RestJDA(String token) {
+        this(token, null);
+    }
+
+    /**
+     * @param token       the bot token
+     * @param interceptor run on every request after it is measured, or null;
+     *                    it may answer requests itself instead of sending them
+     */
+    public RestJDA(String token, Interceptor interceptor) {
+        OkHttpClient.Builder builder = new OkHttpClient.Builder().addInterceptor(RestJDA::measure);
+        if (interceptor != null)
+            builder.addInterceptor(interceptor);
+        fakeJDA = new JDAImpl(AccountType.BOT, builder, null, false, false, false, false, 2, 900);
         fakeJDA.setToken(token);
     }
 
+    /**
+     * Makes an interceptor that sends every request to another server
+     * instead of Discord, such as a local stand-in for load testing
+     *
+     * @param baseUrl the URL that replaces Discord's API prefix, like http://localhost:8190/api/
+     * @return the interceptor, to pass to {@link #RestJDA(String, Interceptor)}
+     */
+    public static Interceptor redirect(String baseUrl) {
+        HttpUrl base = HttpUrl.parse(baseUrl.endsWith("/") ? baseUrl : baseUrl + "/");
+        Checks.notNull(base, "base URL");
+        return chain -> {
+            okhttp3.Request request = chain.request();
+            String path = request.url().encodedPath();
+            int api = path.indexOf("/api/");
+            HttpUrl url = base.newBuilder()
+                    .addEncodedPathSegments(api < 0 ? path.substring(1) : path.substring(api + 5))
+                    .encodedQuery(request.url().encodedQuery())
+                    .build();
+            return chain.proceed(request.newBuilder().url(url).build());
+        };
+    }
+
     @CheckReturnValue
     public RestAction<MessageJson> editMessage(String channelId, String messageId, Message newContent) {
         Checks.notNull(newContent, "message");
@@ -116,4 +170,79 @@ public class RestJDA {
     public EditedReactionPaginationAction getReactionUsers(String channelId, String messageId, String code) {
         return new EditedReactionPaginationAction(fakeJDA, code, channelId, messageId);
     }
+
+    @CheckReturnValue
+    public RestAction<long[]> getMemberRoles(String guildId, String userId) {
+        Checks.notEmpty(userId, "Provided userId");
+
+        Route.CompiledRoute route = GET_MEMBER.compile(guildId, userId);
+        return new RestAction<long[]>(fakeJDA, route) {
+            @Override
+            protected void handleResponse(Response response, Request<long[]> request) {
+                if (response.isOk()) {
+                    JSONArray array = response.getObject().getJSONArray("roles");
+                    long[] roles = new long[array.length()];
+                    for (int i = 0; i < roles.length; i++)
+                        roles[i] = Long.parseLong(array.getString(i));
+                    request.onSuccess(roles);
+                } else
+                    request.onFailure(response);
+            }
+        };
+    }
+
+    // counts and times every request JDA sends, including the ones it retries after a 429
+    private static okhttp3.Response measure(Interceptor.Chain chain) throws IOException {
+        RestEvent event = new RestEvent();
+        event.begin();
+        long start = System.nanoTime();
+        int code = 0;
+        okhttp3.Response response = null;
+        try {
+            response = chain.proceed(chain.request());
+            code = response.code();
+            if (code == 429)
+                RATE_LIMITED.increment();
+            else if (code >= 100 && code < 600)
+                RESPONSES[code / 100].increment();
+            else
+                Metrics.counter("giveawaybot_rest_responses_total", "Discord REST responses by status", "status=\"" + (code / 100) + "xx\"").increment();
+            return response;
+        } catch (IOException e) {
+            FAILED.increment();
+            throw e;
+        } finally {
+            LATENCY.recordSince(start);
+            event.end();
+            if (event.shouldCommit()) {
+                event.route = route(chain.request());
+                event.status = code;
+                event.remaining = header(response, "X-RateLimit-Remaining", -1);
+                event.retryAfter = code == 429 ? header(response, "Retry-After", 0) : 0;
+                event.commit();
+            }
+        }
+    }
+
+    // the method and path of a request, with every ID but the channel or guild's left out
+    private static String route(okhttp3.Request request) {
+        String[] parts = request.url().encodedPath().replaceFirst("^.*/api/(v\\d+/)?", "").split("/");
+        StringBuilder sb = new StringBuilder(request.method()).append(' ');
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0)
+                sb.append('/');
+            boolean id = !parts[i].isEmpty() && Character.isDigit(parts[i].charAt(0));
+            sb.append(id && i > 1 ? "{id}" : parts[i]);
+        }
+        return sb.toString();
+    }
+
+    private static int header(okhttp3.Response response, String name, int missing) {
+        String value = response == null ? null : response.header(name);
+        try {
+            return value == null ? missing : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return missing;
+        }
+    }
 }
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2017 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.giveawaybot.util;
+
+import net.dv8tion.jda.core.requests.RestAction;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * Queues rest actions so that only a few are in flight at once, which keeps
+ * a large batch from flooding the requester and starving everything else.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class BoundedSender {
+
+    private final Semaphore permits;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    public BoundedSender(int maxInFlight) {
+        this.permits = new Semaphore(maxInFlight);
+    }
+
+    public <T> void submit(RestAction<T> action, Consumer<T> success, Consumer<Throwable> failure) {
+        executor.execute(() -> {
+            permits.acquireUninterruptibly();
+            try {
+                action.queue(t -> {
+                    permits.release();
+                    success.accept(t);
+                }, e -> {
+                    permits.release();
+                    failure.accept(e);
+                });
+            } catch (Exception e) {
+                permits.release();
+                failure.accept(e);
+            }
+        });
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -15,14 +15,19 @@
  */
 package com.jagrosh.giveawaybot.util;
 
+import com.jagrosh.giveawaybot.Constants;
 import net.dv8tion.jda.core.JDA;
 import net.dv8tion.jda.core.entities.*;
 import net.dv8tion.jda.core.entities.impl.JDAImpl;
 import net.dv8tion.jda.core.entities.impl.UserImpl;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
@@ -34,11 +39,19 @@ public class FinderUtil {
     public final static String USER_MENTION = "<@!?(\\d{17,20})>";
     public final static String DISCORD_ID = "\\d{17,20}";
 
+    private final static Pattern USER_MENTION_PATTERN = Pattern.compile(USER_MENTION);
+    private final static Pattern DISCORD_ID_PATTERN = Pattern.compile(DISCORD_ID);
+    private final static Pattern DISCRIMINATOR_PATTERN = Pattern.compile("^.*#\\d{4}$");
+    private final static Pattern CHANNEL_MENTION_PATTERN = Pattern.compile("<#(\\d+)>");
+    private final static Pattern ROLE_MENTION_PATTERN = Pattern.compile("<@&(\\d+)>");
+    private final static Pattern ID_PATTERN = Pattern.compile("[Ii][Dd]\\s*:\\s*(\\d+)");
+
     public static List<User> findUsers(String query, JDA jda) {
         String id;
         String discriminator = null;
-        if (query.matches(USER_MENTION)) {
-            id = query.replaceAll(USER_MENTION, "$1");
+        Matcher mention = USER_MENTION_PATTERN.matcher(query);
+        if (mention.matches()) {
+            id = mention.group(1);
             if (id.equals("1")) {
                 UserImpl clyde = new UserImpl(1L, (JDAImpl) jda);
                 clyde.setDiscriminator("0000");
@@ -49,12 +62,12 @@ public class FinderUtil {
             User u = jda.getUserById(id);
             if (u != null)
                 return Collections.singletonList(u);
-        } else if (query.matches(DISCORD_ID)) {
+        } else if (DISCORD_ID_PATTERN.matcher(query).matches()) {
             id = query;
             User u = jda.getUserById(id);
             if (u != null)
                 return Collections.singletonList(u);
-        } else if (query.matches("^.*#\\d{4}$")) {
+        } else if (DISCRIMINATOR_PATTERN.matcher(query).matches()) {
             discriminator = query.substring(query.length() - 4);
             query = query.substring(0, query.length() - 5).trim();
         }
@@ -91,46 +104,30 @@ public class FinderUtil {
     public static List<Member> findMembers(String query, Guild guild) {
         String id;
         String discrim = null;
-        if (query.matches(USER_MENTION)) {
-            id = query.replaceAll(USER_MENTION, "$1");
+        Matcher mention = USER_MENTION_PATTERN.matcher(query);
+        if (mention.matches()) {
+            id = mention.group(1);
             Member m = guild.getMemberById(id);
             if (m != null)
                 return Collections.singletonList(m);
-        } else if (query.matches(DISCORD_ID)) {
+        } else if (DISCORD_ID_PATTERN.matcher(query).matches()) {
             id = query;
             Member m = guild.getMemberById(id);
             if (m != null)
                 return Collections.singletonList(m);
-        } else if (query.matches("^.*#\\d{4}$")) {
+        } else if (DISCRIMINATOR_PATTERN.matcher(query).matches()) {
             discrim = query.substring(query.length() - 4);
             query = query.substring(0, query.length() - 5).trim();
         }
-        ArrayList<Member> exact = new ArrayList<>();
-        ArrayList<Member> wrongcase = new ArrayList<>();
-        ArrayList<Member> startswith = new ArrayList<>();
-        ArrayList<Member> contains = new ArrayList<>();
         String lowerQuery = query.toLowerCase();
-        for (Member m : guild.getMembers()) {
-            String nickname = m.getNickname();
-            String name = m.getUser().getName();
-            if (discrim != null && !m.getUser().getDiscriminator().equals(discrim))
-                continue;
-            if (name.equals(query) || (nickname != null && nickname.equals(query)))
-                exact.add(m);
-            else if (exact.isEmpty() && (name.equalsIgnoreCase(query) || (nickname != null && nickname.equalsIgnoreCase(query))))
-                wrongcase.add(m);
-            else if (wrongcase.isEmpty() && (name.toLowerCase().startsWith(lowerQuery) || (nickname != null && nickname.toLowerCase().startsWith(lowerQuery))))
-                startswith.add(m);
-            else if (startswith.isEmpty() && (name.toLowerCase().contains(lowerQuery) || (nickname != null && nickname.toLowerCase().contains(lowerQuery))))
-                contains.add(m);
+        List<Member> prefixed = Constants.NAMES.findMembers(guild, lowerQuery);
+        List<Member> all = guild.getMembers();
+        if (discrim != null) {
+            String d = discrim;
+            prefixed = prefixed.stream().filter(m -> m.getUser().getDiscriminator().equals(d)).collect(Collectors.toList());
+            all = all.stream().filter(m -> m.getUser().getDiscriminator().equals(d)).collect(Collectors.toList());
         }
-        if (!exact.isEmpty())
-            return exact;
-        if (!wrongcase.isEmpty())
-            return wrongcase;
-        if (!startswith.isEmpty())
-            return startswith;
-        return contains;
+        return bestMatches(query, prefixed, all, m -> new String[]{m.getUser().getName(), m.getNickname()});
     }
 
     public static List<User> findBannedUsers(String query, Guild guild) {
@@ -142,15 +139,16 @@ public class FinderUtil {
         }
         String id;
         String discrim = null;
-        if (query.matches(USER_MENTION)) {
-            id = query.replaceAll(USER_MENTION, "$1");
+        Matcher mention = USER_MENTION_PATTERN.matcher(query);
+        if (mention.matches()) {
+            id = mention.group(1);
             User u = guild.getJDA().getUserById(id);
             if (bans.contains(u))
                 return Collections.singletonList(u);
             for (User user : bans)
                 if (user.getId().equals(id))
                     return Collections.singletonList(user);
-        } else if (query.matches(DISCORD_ID)) {
+        } else if (DISCORD_ID_PATTERN.matcher(query).matches()) {
             id = query;
             User u = guild.getJDA().getUserById(id);
             if (u != null && bans.contains(u))
@@ -158,7 +156,7 @@ public class FinderUtil {
             for (User user : bans)
                 if (user.getId().equals(id))
                     return Collections.singletonList(user);
-        } else if (query.matches("^.*#\\d{4}$")) {
+        } else if (DISCRIMINATOR_PATTERN.matcher(query).matches()) {
             discrim = query.substring(query.length() - 4);
             query = query.substring(0, query.length() - 5).trim();
         }
@@ -190,129 +188,74 @@ public class FinderUtil {
 
     public static List<TextChannel> findTextChannel(String query, Guild guild) {
         String id;
-        if (query.matches("<#\\d+>")) {
-            id = query.replaceAll("<#(\\d+)>", "$1");
+        Matcher mention = CHANNEL_MENTION_PATTERN.matcher(query);
+        if (mention.matches()) {
+            id = mention.group(1);
             TextChannel tc = guild.getJDA().getTextChannelById(id);
             if (tc != null && tc.getGuild().equals(guild))
                 return Collections.singletonList(tc);
-        } else if (query.matches(DISCORD_ID)) {
+        } else if (DISCORD_ID_PATTERN.matcher(query).matches()) {
             id = query;
             TextChannel tc = guild.getJDA().getTextChannelById(id);
             if (tc != null && tc.getGuild().equals(guild))
                 return Collections.singletonList(tc);
         }
-        ArrayList<TextChannel> exact = new ArrayList<>();
-        ArrayList<TextChannel> wrongCase = new ArrayList<>();
-        ArrayList<TextChannel> startsWith = new ArrayList<>();
-        ArrayList<TextChannel> contains = new ArrayList<>();
         String lowerQuery = query.toLowerCase();
-        guild.getTextChannels().forEach((tc) -> {
-            if (tc.getName().equals(lowerQuery))
-                exact.add(tc);
-            else if (tc.getName().equalsIgnoreCase(lowerQuery) && exact.isEmpty())
-                wrongCase.add(tc);
-            else if (tc.getName().toLowerCase().startsWith(lowerQuery) && wrongCase.isEmpty())
-                startsWith.add(tc);
-            else if (tc.getName().toLowerCase().contains(lowerQuery) && startsWith.isEmpty())
-                contains.add(tc);
-        });
-        if (!exact.isEmpty())
-            return exact;
-        if (!wrongCase.isEmpty())
-            return wrongCase;
-        if (!startsWith.isEmpty())
-            return startsWith;
-        return contains;
+        return bestMatches(lowerQuery, Constants.NAMES.findTextChannels(guild, lowerQuery), guild.getTextChannels(), tc -> new String[]{tc.getName()});
     }
 
     public static List<VoiceChannel> findVoiceChannel(String query, Guild guild) {
         String id;
-        if (query.matches("<#\\d+>")) {
-            id = query.replaceAll("<#(\\d+)>", "$1");
+        Matcher mention = CHANNEL_MENTION_PATTERN.matcher(query);
+        if (mention.matches()) {
+            id = mention.group(1);
             VoiceChannel vc = guild.getJDA().getVoiceChannelById(id);
             if (vc != null && vc.getGuild().equals(guild))
                 return Collections.singletonList(vc);
-        } else if (query.matches(DISCORD_ID)) {
+        } else if (DISCORD_ID_PATTERN.matcher(query).matches()) {
             id = query;
             VoiceChannel vc = guild.getJDA().getVoiceChannelById(id);
             if (vc != null && vc.getGuild().equals(guild))
                 return Collections.singletonList(vc);
         }
-        ArrayList<VoiceChannel> exact = new ArrayList<>();
-        ArrayList<VoiceChannel> wrongCase = new ArrayList<>();
-        ArrayList<VoiceChannel> startsWith = new ArrayList<>();
-        ArrayList<VoiceChannel> contains = new ArrayList<>();
         String lowerQuery = query.toLowerCase();
-        guild.getVoiceChannels().forEach((vc) -> {
-            if (vc.getName().equals(lowerQuery))
-                exact.add(vc);
-            else if (vc.getName().equalsIgnoreCase(lowerQuery) && exact.isEmpty())
-                wrongCase.add(vc);
-            else if (vc.getName().toLowerCase().startsWith(lowerQuery) && wrongCase.isEmpty())
-                startsWith.add(vc);
-            else if (vc.getName().toLowerCase().contains(lowerQuery) && startsWith.isEmpty())
-                contains.add(vc);
-        });
-        if (!exact.isEmpty())
-            return exact;
-        if (!wrongCase.isEmpty())
-            return wrongCase;
-        if (!startsWith.isEmpty())
-            return startsWith;
-        return contains;
+        return bestMatches(lowerQuery, Constants.NAMES.findVoiceChannels(guild, lowerQuery), guild.getVoiceChannels(), vc -> new String[]{vc.getName()});
     }
 
     public static List<Role> findRole(String query, Guild guild) {
         String id;
-        if (query.matches("<@&\\d+>")) {
-            id = query.replaceAll("<@&(\\d+)>", "$1");
+        Matcher mention = ROLE_MENTION_PATTERN.matcher(query);
+        if (mention.matches()) {
+            id = mention.group(1);
             Role r = guild.getRoleById(id);
             if (r != null)
                 return Collections.singletonList(r);
         }
-        if (query.matches("[Ii][Dd]\\s*:\\s*\\d+")) {
-            id = query.replaceAll("[Ii][Dd]\\s*:\\s*(\\d+)", "$1");
+        Matcher idMatcher = ID_PATTERN.matcher(query);
+        if (idMatcher.matches()) {
+            id = idMatcher.group(1);
             Role r = guild.getRoleById(id);
             if (r != null)
                 return Collections.singletonList(r);
-        } else if (query.matches(DISCORD_ID)) {
+        } else if (DISCORD_ID_PATTERN.matcher(query).matches()) {
             id = query;
             Role r = guild.getRoleById(id);
             if (r != null)
                 return Collections.singletonList(r);
         }
-        ArrayList<Role> exact = new ArrayList<>();
-        ArrayList<Role> wrongcase = new ArrayList<>();
-        ArrayList<Role> startswith = new ArrayList<>();
-        ArrayList<Role> contains = new ArrayList<>();
         String lowerQuery = query.toLowerCase();
-        guild.getRoles().forEach((role) -> {
-            if (role.getName().equals(query))
-                exact.add(role);
-            else if (role.getName().equalsIgnoreCase(query) && exact.isEmpty())
-                wrongcase.add(role);
-            else if (role.getName().toLowerCase().startsWith(lowerQuery) && wrongcase.isEmpty())
-                startswith.add(role);
-            else if (role.getName().toLowerCase().contains(lowerQuery) && startswith.isEmpty())
-                contains.add(role);
-        });
-        if (!exact.isEmpty())
-            return exact;
-        if (!wrongcase.isEmpty())
-            return wrongcase;
-        if (!startswith.isEmpty())
-            return startswith;
-        return contains;
+        return bestMatches(query, Constants.NAMES.findRoles(guild, lowerQuery), guild.getRoles(), role -> new String[]{role.getName()});
     }
 
     public static List<Guild> findGuild(String query, JDA jda) {
         String id;
-        if (query.matches("[Ii][Dd]\\s*:\\s*\\d+")) {
-            id = query.replaceAll("[Ii][Dd]\\s*:\\s*(\\d+)", "$1");
+        Matcher idMatcher = ID_PATTERN.matcher(query);
+        if (idMatcher.matches()) {
+            id = idMatcher.group(1);
             Guild g = jda.getGuildById(id);
             if (g != null)
                 return Collections.singletonList(g);
-        } else if (query.matches(DISCORD_ID)) {
+        } else if (DISCORD_ID_PATTERN.matcher(query).matches()) {
             id = query;
             Guild g = jda.getGuildById(id);
             if (g != null)
@@ -341,4 +284,49 @@ public class FinderUtil {
             return startswith;
         return contains;
     }
+
+    /**
+     * Picks the best matches for a query from the entities whose names start
+     * with it: exact names first, then names that only differ by case. When
+     * nothing starts with the query, falls back to names that contain it.
+     *
+     * @param query    the query, compared as-is for exact matches
+     * @param prefixed the entities with a name that starts with the lowercased query
+     * @param all      every entity, for the fallback
+     * @param names    the names of an entity, which may include nulls
+     * @return the best matches
+     */
+    private static <T> List<T> bestMatches(String query, List<T> prefixed, Collection<T> all, Function<T, String[]> names) {
+        if (prefixed.isEmpty()) {
+            String lowerQuery = query.toLowerCase();
+            ArrayList<T> contains = new ArrayList<>();
+            for (T entity : all)
+                for (String name : names.apply(entity))
+                    if (name != null && name.toLowerCase().contains(lowerQuery)) {
+                        contains.add(entity);
+                        break;
+                    }
+            return contains;
+        }
+        ArrayList<T> exact = new ArrayList<>();
+        ArrayList<T> wrongcase = new ArrayList<>();
+        for (T entity : prefixed) {
+            boolean isExact = false, isWrongcase = false;
+            for (String name : names.apply(entity)) {
+                if (name == null)
+                    continue;
+                isExact |= name.equals(query);
+                isWrongcase |= name.equalsIgnoreCase(query);
+            }
+            if (isExact)
+                exact.add(entity);
+            else if (isWrongcase)
+                wrongcase.add(entity);
+        }
+        if (!exact.isEmpty())
+            return exact;
+        if (!wrongcase.isEmpty())
+            return wrongcase;
+        return prefixed;
+    }
 }
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2017 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.giveawaybot.util;
+
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.dv8tion.jda.core.events.message.guild.GuildMessageReceivedEvent;
+import net.dv8tion.jda.core.hooks.ListenerAdapter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Waits for the next message from a user in a channel.
+ * <p>
+ * Pending waits are keyed by channel and then user, so an incoming message
+ * finds its wait with two hash lookups regardless of how many are pending.
+ * A user has at most one wait per channel; a new one replaces the old.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class MessageWaiter extends ListenerAdapter {
+
+    private final TLongObjectMap<TLongObjectMap<Session>> sessions = new TLongObjectHashMap<>();
+    private final TimerWheel timer;
+
+    public MessageWaiter(TimerWheel timer) {
+        this.timer = timer;
+    }
+
+    /**
+     * Waits for the next message from a user in a channel
+     *
+     * @param channelId     the channel to watch
+     * @param userId        the user to wait for
+     * @param action        run with the user's message
+     * @param timeout       how long to wait
+     * @param unit          the unit of the timeout
+     * @param timeoutAction run if the user doesn't reply in time
+     */
+    public void waitForMessage(long channelId, long userId, Consumer<GuildMessageReceivedEvent> action,
+                               long timeout, TimeUnit unit, Runnable timeoutAction) {
+        Session session = new Session(channelId, userId, action);
+        Session old;
+        synchronized (sessions) {
+            TLongObjectMap<Session> users = sessions.get(channelId);
+            if (users == null) {
+                users = new TLongObjectHashMap<>(4);
+                sessions.put(channelId, users);
+            }
+            old = users.put(userId, session);
+        }
+        if (old != null && old.timeout != null)
+            old.timeout.cancel();
+        session.timeout = timer.schedule(timeout, unit, () -> {
+            if (remove(session))
+                timeoutAction.run();
+        });
+    }
+
+    // only one of the message and the timeout can remove a session
+    private boolean remove(Session session) {
+        synchronized (sessions) {
+            TLongObjectMap<Session> users = sessions.get(session.channelId);
+            if (users == null || users.get(session.userId) != session)
+                return false;
+            users.remove(session.userId);
+            if (users.isEmpty())
+                sessions.remove(session.channelId);
+            return true;
+        }
+    }
+
+    @Override
+    public void onGuildMessageReceived(GuildMessageReceivedEvent event) {
+        Session session;
+        synchronized (sessions) {
+            if (sessions.isEmpty())
+                return;
+            TLongObjectMap<Session> users = sessions.get(event.getChannel().getIdLong());
+            if (users == null)
+                return;
+            session = users.get(event.getAuthor().getIdLong());
+        }
+        if (session == null || !remove(session))
+            return;
+        TimerWheel.Timeout timeout = session.timeout;
+        if (timeout != null)
+            timeout.cancel();
+        session.action.accept(event);
+    }
+
+    private static class Session {
+
+        private final long channelId;
+        private final long userId;
+        private final Consumer<GuildMessageReceivedEvent> action;
+        private volatile TimerWheel.Timeout timeout;
+
+        private Session(long channelId, long userId, Consumer<GuildMessageReceivedEvent> action) {
+            this.channelId = channelId;
+            this.userId = userId;
+            this.action = action;
+        }
+    }
+}
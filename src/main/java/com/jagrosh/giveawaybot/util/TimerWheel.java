@@ -0,0 +1,121 @@
+/*
+ * Copyright 2017 John Grosh (john.a.grosh@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.giveawaybot.util;
+
+import net.dv8tion.jda.core.utils.SimpleLog;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A hashed timer wheel: one thread ticks through a ring of slots, running the
+ * timeouts filed in each slot. Scheduling and cancelling are O(1), and any
+ * number of pending timeouts share the one thread.
+ *
+ * @author John Grosh (john.a.grosh@gmail.com)
+ */
+public class TimerWheel {
+
+    private final static SimpleLog LOG = SimpleLog.getLog("Timer");
+
+    private final long tickMillis;
+    private final List<Timeout>[] wheel;
+    private final ScheduledExecutorService executor;
+    private int cursor = 0;
+
+    @SuppressWarnings("unchecked")
+    public TimerWheel(int slots, long tick, TimeUnit unit) {
+        this.tickMillis = unit.toMillis(tick);
+        this.wheel = (List<Timeout>[]) new List[slots];
+        for (int i = 0; i < slots; i++)
+            wheel[i] = new LinkedList<>();
+        this.executor = Executors.newSingleThreadScheduledExecutor();
+        executor.scheduleAtFixedRate(this::tick, tick, tick, unit);
+    }
+
+    /**
+     * Runs a task after a delay, rounded up to the next tick
+     *
+     * @param delay the delay
+     * @param unit  the unit of the delay
+     * @param task  the task to run on the timer thread
+     * @return a handle to cancel the timeout
+     */
+    public Timeout schedule(long delay, TimeUnit unit, Runnable task) {
+        long ticks = Math.max(1, (unit.toMillis(delay) + tickMillis - 1) / tickMillis);
+        Timeout timeout = new Timeout(task, (ticks - 1) / wheel.length);
+        synchronized (this) {
+            wheel[(int) ((cursor + ticks) % wheel.length)].add(timeout);
+        }
+        return timeout;
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void tick() {
+        List<Timeout> due = new LinkedList<>();
+        synchronized (this) {
+            cursor = (cursor + 1) % wheel.length;
+            Iterator<Timeout> it = wheel[cursor].iterator();
+            while (it.hasNext()) {
+                Timeout timeout = it.next();
+                if (timeout.done.get())
+                    it.remove();
+                else if (timeout.rounds > 0)
+                    timeout.rounds--;
+                else {
+                    it.remove();
+                    due.add(timeout);
+                }
+            }
+        }
+        for (Timeout timeout : due) {
+            if (!timeout.done.compareAndSet(false, true))
+                continue;
+            try {
+                timeout.task.run();
+            } catch (Exception e) {
+                LOG.fatal("Timeout failed: " + e);
+            }
+        }
+    }
+
+    public static class Timeout {
+
+        private final Runnable task;
+        private final AtomicBoolean done = new AtomicBoolean(false);
+        private long rounds;
+
+        private Timeout(Runnable task, long rounds) {
+            this.task = task;
+            this.rounds = rounds;
+        }
+
+        /**
+         * @return true if the timeout was cancelled before it ran
+         */
+        public boolean cancel() {
+            return done.compareAndSet(false, true);
+        }
+    }
+}